@@ -0,0 +1,191 @@
+package src;
+import java.util.*;
+
+/**
+ * Vehicle-count-aware construction heuristic: customers are first packed into the minimum
+ * number of vehicles (bin-packing bound) and every vehicle's customers are then sequenced
+ * with a quick TSP heuristic (nearest neighbour followed by 2-opt).
+ *
+ * Packing is first-fit-decreasing with a geographic bin choice: customers are taken by
+ * decreasing demand and put in the bin with the nearest seed customer that still has room.
+ * Seeds are spread out by a farthest-point rule. Only when a customer fits in no bin is an
+ * extra vehicle opened.
+ */
+public class BinPackingHeuristic implements RandomizedConstructor {
+    private static final int DEPOT = 1;
+    private final double alpha;
+
+    /**
+     * Constructor
+     * @param alpha amount of randomization in [0, 1]: perturbs the demand order and the seed choice
+     */
+    public BinPackingHeuristic(double alpha) {
+        this.alpha = alpha;
+    }
+
+    /**
+     * Constructs a CVRPSolution deterministically (no randomization).
+     * @param instance CVRP instance
+     * @return constructed CVRPSolution
+     */
+    public CVRPSolution construct(CVRPInstance instance) {
+        return build(instance, null);
+    }
+
+    /**
+     * Constructs a randomized CVRPSolution, for use as GRASP constructor.
+     * @param instance CVRP instance
+     * @param rng random source
+     * @return constructed CVRPSolution
+     */
+    @Override
+    public CVRPSolution construct(CVRPInstance instance, Random rng) {
+        return build(instance, rng);
+    }
+
+    private CVRPSolution build(CVRPInstance instance, Random rng) {
+        int n = instance.getNodes();
+        int Q = instance.getCapacity();
+        int K = Math.min(LowerBound.computeVehicleBound(instance), n - 1);
+
+        int[] seeds = chooseSeeds(instance, K, rng);
+
+        // customers by decreasing (possibly perturbed) demand
+        Integer[] order = new Integer[n - 1];
+        double[] key = new double[n + 1];
+        for (int i = 2; i <= n; i++) {
+            order[i - 2] = i;
+            double noise = rng == null ? 0.0 : alpha * (2 * rng.nextDouble() - 1);
+            key[i] = instance.getDemand(i) * (1.0 + noise);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(key[b], key[a]));
+
+        List<List<Integer>> bins = new ArrayList<>();
+        List<Integer> binSeed = new ArrayList<>();
+        List<Integer> binLoad = new ArrayList<>();
+        for (int s : seeds) {
+            bins.add(new ArrayList<>());
+            binSeed.add(s);
+            binLoad.add(0);
+        }
+
+        for (int c : order) {
+            int d = instance.getDemand(c);
+            int best = -1;
+            int bestDist = Integer.MAX_VALUE;
+            for (int b = 0; b < bins.size(); b++) {
+                if (binLoad.get(b) + d > Q) {
+                    continue;
+                }
+                int dist = instance.getDistance(binSeed.get(b), c);
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    best = b;
+                }
+            }
+            if (best == -1) {
+                // does not fit anywhere: open an extra vehicle seeded by this customer
+                bins.add(new ArrayList<>());
+                binSeed.add(c);
+                binLoad.add(0);
+                best = bins.size() - 1;
+            }
+            bins.get(best).add(c);
+            binLoad.set(best, binLoad.get(best) + d);
+        }
+
+        CVRPSolution sol = new CVRPSolution();
+        for (List<Integer> bin : bins) {
+            if (bin.isEmpty()) {
+                continue;
+            }
+            sol.addRoute(new Route(sequence(bin, instance), instance));
+        }
+        return sol;
+    }
+
+    /**
+     * Chooses K seed customers spread around the instance: the first is the customer farthest
+     * from the depot, each next one the customer farthest from the depot and the chosen seeds.
+     * With randomization the choice is made from the top alpha fraction of candidates.
+     */
+    private int[] chooseSeeds(CVRPInstance instance, int K, Random rng) {
+        int n = instance.getNodes();
+        int[] seeds = new int[K];
+        int[] nearest = new int[n + 1];
+        boolean[] chosen = new boolean[n + 1];
+        for (int i = 2; i <= n; i++) {
+            nearest[i] = instance.getDistance(DEPOT, i);
+        }
+
+        for (int k = 0; k < K; k++) {
+            int maxDist = -1;
+            for (int i = 2; i <= n; i++) {
+                if (!chosen[i] && nearest[i] > maxDist) {
+                    maxDist = nearest[i];
+                }
+            }
+
+            int seed = -1;
+            if (rng == null) {
+                for (int i = 2; i <= n && seed == -1; i++) {
+                    if (!chosen[i] && nearest[i] == maxDist) {
+                        seed = i;
+                    }
+                }
+            } else {
+                List<Integer> rcl = new ArrayList<>();
+                double threshold = (1.0 - alpha) * maxDist;
+                for (int i = 2; i <= n; i++) {
+                    if (!chosen[i] && nearest[i] >= threshold) {
+                        rcl.add(i);
+                    }
+                }
+                seed = rcl.get(rng.nextInt(rcl.size()));
+            }
+
+            seeds[k] = seed;
+            chosen[seed] = true;
+            for (int i = 2; i <= n; i++) {
+                nearest[i] = Math.min(nearest[i], instance.getDistance(seed, i));
+            }
+        }
+        return seeds;
+    }
+
+    /**
+     * Sequences a cluster of customers: nearest neighbour from the depot, then 2-opt.
+     * @param cluster customers of one vehicle
+     * @param instance CVRP instance
+     * @return visiting order
+     */
+    private List<Integer> sequence(List<Integer> cluster, CVRPInstance instance) {
+        int size = cluster.size();
+        int[] tour = new int[size + 2];
+        boolean[] used = new boolean[size];
+
+        // nearest neighbour; tour[0] and tour[size + 1] are the depot
+        tour[0] = DEPOT;
+        tour[size + 1] = DEPOT;
+        for (int pos = 1; pos <= size; pos++) {
+            int prev = tour[pos - 1];
+            int best = -1;
+            for (int k = 0; k < size; k++) {
+                if (!used[k] && (best == -1
+                        || instance.getDistance(prev, cluster.get(k)) < instance.getDistance(prev, cluster.get(best)))) {
+                    best = k;
+                }
+            }
+            used[best] = true;
+            tour[pos] = cluster.get(best);
+        }
+
+        RouteUtils.twoOpt(tour, instance);
+
+        List<Integer> seq = new ArrayList<>(size);
+        for (int pos = 1; pos <= size; pos++) {
+            seq.add(tour[pos]);
+        }
+        return seq;
+    }
+}
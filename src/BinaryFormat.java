@@ -0,0 +1,489 @@
+package src;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary format for CVRP instances and solutions, read and written through NIO channels.
+ *
+ * Instance file: magic "CVRI", version, flags, nodes, capacity, then (x, y, demand) per node
+ * and, if flag bit 0 is set, the upper triangle of the distance matrix.
+ *
+ * Solution stream: a sequence of frames, each one magic "CVRS", payload length and a payload
+ * of varints (number of routes, then per route its length followed by its customers; empty
+ * routes are left out, and a route from another depot than node 1 starts with the depot id).
+ * Several solutions can be appended to the same channel.
+ */
+public class BinaryFormat {
+    public static final int INSTANCE_MAGIC = 0x43565249;   // "CVRI"
+    public static final int SOLUTION_MAGIC = 0x43565253;   // "CVRS"
+    public static final byte VERSION = 1;
+    private static final byte FLAG_DISTANCES = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Writes an instance in binary format.
+     * @param filePath output file
+     * @param instance CVRP instance
+     * @param includeDistances true to embed the precomputed distance matrix
+     * @throws IOException if the file cannot be written, or the instance has time windows or
+     *                     other depots than node 1, which the format cannot hold
+     */
+    public static void writeInstance(String filePath, CVRPInstance instance, boolean includeDistances) throws IOException {
+        if (!instance.isPureCVRP()) {
+            throw new IOException("The binary instance format holds no depots or time windows");
+        }
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int n = instance.getNodes();
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            buf.putInt(INSTANCE_MAGIC);
+            buf.put(VERSION);
+            buf.put(includeDistances ? FLAG_DISTANCES : 0);
+            buf.putInt(n);
+            buf.putInt(instance.getCapacity());
+
+            for (int i = 1; i <= n; i++) {
+                flushIfFull(ch, buf, 12);
+                buf.putInt(instance.getX(i));
+                buf.putInt(instance.getY(i));
+                buf.putInt(instance.getDemand(i));
+            }
+
+            if (includeDistances) {
+                // symmetric matrix: only the upper triangle is stored
+                for (int i = 1; i <= n; i++) {
+                    for (int j = i + 1; j <= n; j++) {
+                        flushIfFull(ch, buf, 4);
+                        buf.putInt(instance.getDistance(i, j));
+                    }
+                }
+            }
+            buf.flip();
+            writeFully(ch, buf);
+        }
+    }
+
+    /**
+     * Reads an instance in binary format. If the file embeds a distance matrix it is used as is,
+     * otherwise the matrix is computed from the coordinates.
+     * @param filePath input file
+     * @return CVRP instance
+     * @throws IOException if the file cannot be read or is not a binary instance
+     */
+    public static CVRPInstance readInstance(String filePath) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ChannelInput in = new ChannelInput(ch);
+
+            in.require(14);
+            if (in.buf.getInt() != INSTANCE_MAGIC) {
+                throw new IOException("Not a binary CVRP instance: " + filePath);
+            }
+            byte version = in.buf.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary instance version " + version);
+            }
+            byte flags = in.buf.get();
+            int n = in.buf.getInt();
+            int capacity = in.buf.getInt();
+
+            int[] x = new int[n + 1];
+            int[] y = new int[n + 1];
+            int[] demand = new int[n + 1];
+            for (int i = 1; i <= n; i++) {
+                in.require(12);
+                x[i] = in.buf.getInt();
+                y[i] = in.buf.getInt();
+                demand[i] = in.buf.getInt();
+            }
+
+            if ((flags & FLAG_DISTANCES) == 0) {
+                return new CVRPInstance(n, capacity, x, y, demand);
+            }
+
+            int[][] d = new int[n + 1][n + 1];
+            for (int i = 1; i <= n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    in.require(4);
+                    int dist = in.buf.getInt();
+                    d[i][j] = dist;
+                    d[j][i] = dist;
+                }
+            }
+            return new CVRPInstance(n, capacity, x, y, demand, d);
+        }
+    }
+
+    /**
+     * Writes a single solution to a binary file.
+     * @param filePath output file
+     * @param sol solution to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeSolution(String filePath, CVRPSolution sol) throws IOException {
+        try (SolutionOutput out = new SolutionOutput(FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            out.write(sol);
+        }
+    }
+
+    /**
+     * Reads the first solution of a binary solution file.
+     * @param filePath input file
+     * @param instance CVRP instance the solution belongs to
+     * @return the solution
+     * @throws IOException if the file cannot be read or contains no solution
+     */
+    public static CVRPSolution readSolution(String filePath, CVRPInstance instance) throws IOException {
+        try (SolutionInput in = new SolutionInput(FileChannel.open(Paths.get(filePath), StandardOpenOption.READ))) {
+            CVRPSolution sol = in.read(instance);
+            if (sol == null) {
+                throw new EOFException("No solution in " + filePath);
+            }
+            return sol;
+        }
+    }
+
+    /**
+     * Converts a text instance (InstanceReader format) to the binary format.
+     * @param textPath text instance
+     * @param binaryPath binary output
+     * @param includeDistances true to embed the distance matrix
+     * @throws IOException on read or write failure
+     */
+    public static void instanceTextToBinary(String textPath, String binaryPath, boolean includeDistances) throws IOException {
+        writeInstance(binaryPath, InstanceReader.read(textPath), includeDistances);
+    }
+
+    /**
+     * Converts a binary instance to the text format read by InstanceReader.
+     * @param binaryPath binary instance
+     * @param textPath text output
+     * @throws IOException on read or write failure
+     */
+    public static void instanceBinaryToText(String binaryPath, String textPath) throws IOException {
+        InstanceWriter.write(textPath, readInstance(binaryPath));
+    }
+
+    /**
+     * Converts a text solution (SolutionWriter format) to the binary format.
+     * @param textPath text solution
+     * @param binaryPath binary output
+     * @param instance CVRP instance the solution belongs to
+     * @throws IOException on read or write failure
+     */
+    public static void solutionTextToBinary(String textPath, String binaryPath, CVRPInstance instance) throws IOException {
+        writeSolution(binaryPath, SolutionReader.read(textPath, instance));
+    }
+
+    /**
+     * Converts a binary solution to the text format written by SolutionWriter.
+     * @param binaryPath binary solution
+     * @param textPath text output
+     * @param instance CVRP instance the solution belongs to
+     * @throws IOException on read or write failure
+     */
+    public static void solutionBinaryToText(String binaryPath, String textPath, CVRPInstance instance) throws IOException {
+        SolutionWriter.writeSolution(textPath, readSolution(binaryPath, instance));
+    }
+
+    /**
+     * Writes solution frames to a channel, reusing one encoding buffer for all of them.
+     */
+    public static class SolutionOutput implements Closeable {
+        private final WritableByteChannel channel;
+        private ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        public SolutionOutput(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Encodes and writes one solution frame.
+         * @param sol solution to write
+         * @throws IOException if the channel write fails
+         */
+        public void write(CVRPSolution sol) throws IOException {
+            buf = encodeSolution(sol, buf);
+            buf.flip();
+            writeFully(channel, buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads solution frames from a channel.
+     */
+    public static class SolutionInput implements Closeable {
+        private final ChannelInput in;
+
+        public SolutionInput(ReadableByteChannel channel) {
+            this.in = new ChannelInput(channel);
+        }
+
+        /**
+         * Reads the next solution frame.
+         * @param instance CVRP instance the solution belongs to
+         * @return the next solution, or null at end of stream
+         * @throws IOException if the stream is corrupt or cannot be read
+         */
+        public CVRPSolution read(CVRPInstance instance) throws IOException {
+            if (!in.fill(8)) {
+                return null;
+            }
+            if (in.buf.getInt() != SOLUTION_MAGIC) {
+                throw new IOException("Corrupt solution stream: bad frame magic");
+            }
+            int length = in.buf.getInt();
+            if (length < 0 || length > maxSolutionFrameBytes(instance.getNodes()) - 8) {
+                throw new IOException("Corrupt solution stream: frame length " + length);
+            }
+            in.require(length);
+            ByteBuffer frame = in.buf.slice();
+            frame.limit(length);
+            in.buf.position(in.buf.position() + length);
+
+            // every count is checked against the bytes left in the frame before it is used
+            int numRoutes = getVarint(frame);
+            if (numRoutes < 0 || numRoutes > frame.remaining()) {
+                throw new IOException("Corrupt solution stream: " + numRoutes + " routes");
+            }
+            CVRPSolution sol = new CVRPSolution();
+            for (int r = 0; r < numRoutes; r++) {
+                int size = getVarint(frame);
+                if (size < 0 || size > frame.remaining()) {
+                    throw new IOException("Corrupt solution stream: route of " + size + " customers");
+                }
+                List<Integer> customers = new ArrayList<>(size);
+                int depot = 1;
+                for (int i = 0; i < size; i++) {
+                    int c = getVarint(frame);
+                    if (c < 1 || c > instance.getNodes() || (instance.isDepot(c) && i > 0)) {
+                        throw new IOException("Corrupt solution stream: customer " + c + " is not in the instance");
+                    }
+                    if (instance.isDepot(c)) {
+                        depot = c;
+                    } else {
+                        customers.add(c);
+                    }
+                }
+                sol.addRoute(new Route(customers, instance, depot));
+            }
+            if (frame.hasRemaining()) {
+                throw new IOException("Corrupt solution stream: frame length mismatch");
+            }
+            return sol;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.channel.close();
+        }
+    }
+
+    /**
+     * Buffered reader over a channel that refills on demand.
+     */
+    private static class ChannelInput {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        ChannelInput(ReadableByteChannel channel) {
+            this.channel = channel;
+            buf.limit(0);
+        }
+
+        /**
+         * Makes sure at least the given number of bytes are buffered.
+         * @return false if the stream ended cleanly before any byte was available
+         */
+        boolean fill(int bytes) throws IOException {
+            if (buf.remaining() >= bytes) {
+                return true;
+            }
+            if (buf.capacity() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(bytes, buf.capacity() * 2));
+                bigger.put(buf);
+                buf = bigger;
+            } else {
+                buf.compact();
+            }
+            while (buf.position() < bytes) {
+                if (channel.read(buf) < 0) {
+                    boolean empty = buf.position() == 0;
+                    buf.flip();
+                    if (empty) {
+                        return false;
+                    }
+                    throw new EOFException("Unexpected end of stream");
+                }
+            }
+            buf.flip();
+            return true;
+        }
+
+        void require(int bytes) throws IOException {
+            if (!fill(bytes)) {
+                throw new EOFException("Unexpected end of stream");
+            }
+        }
+    }
+
+    /**
+     * Appends one solution frame to the buffer, replacing the buffer by a larger one if needed.
+     * Empty routes are left out, which keeps the frame within maxSolutionFrameBytes.
+     * @param sol solution to encode
+     * @param buf buffer in write mode
+     * @return the buffer holding the encoded frame (still in write mode)
+     */
+    static ByteBuffer encodeSolution(CVRPSolution sol, ByteBuffer buf) {
+        List<Route> routes = new ArrayList<>(sol.getRoutes().size());
+        for (Route r : sol.getRoutes()) {
+            if (!r.getCustomers().isEmpty()) {
+                routes.add(r);
+            }
+        }
+
+        // worst case 5 bytes per varint
+        int maxFrame = 8 + 5;
+        for (Route r : routes) {
+            maxFrame += 5 * (r.getCustomers().size() + 2);
+        }
+        if (buf.remaining() < maxFrame) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buf.position() + maxFrame, buf.capacity() * 2));
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+
+        int start = buf.position();
+        buf.putInt(SOLUTION_MAGIC);
+        buf.putInt(0); // payload length, patched below
+        putVarint(buf, routes.size());
+        for (Route r : routes) {
+            List<Integer> customers = r.getCustomers();
+            if (r.getDepot() != 1) {
+                putVarint(buf, customers.size() + 1);
+                putVarint(buf, r.getDepot());
+            } else {
+                putVarint(buf, customers.size());
+            }
+            for (int i = 0; i < customers.size(); i++) {
+                putVarint(buf, customers.get(i));
+            }
+        }
+        buf.putInt(start + 4, buf.position() - start - 8);
+        return buf;
+    }
+
+    /**
+     * Gets the largest frame encodeSolution produces for a solution of an instance: without empty
+     * routes, at most nodes - 1 routes and customers, each with a varint of at most 5 bytes, and
+     * a depot id per route.
+     * @param nodes number of nodes of the instance, including the depot
+     * @return maximum frame size in bytes, header included
+     */
+    static int maxSolutionFrameBytes(int nodes) {
+        return 8 + 5 + 15 * Math.max(0, nodes - 1);
+    }
+
+    private static void putVarint(ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buf) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!buf.hasRemaining()) {
+                throw new IOException("Corrupt solution stream: frame ends inside a number");
+            }
+            byte b = buf.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt solution stream: varint too long");
+    }
+
+    private static void flushIfFull(WritableByteChannel ch, ByteBuffer buf, int needed) throws IOException {
+        if (buf.remaining() < needed) {
+            buf.flip();
+            writeFully(ch, buf);
+            buf.clear();
+        }
+    }
+
+    static void writeFully(WritableByteChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+    }
+
+    /**
+     * Command line converter between the text and binary formats.
+     * Usage: instance-to-binary in out [--distances] | instance-to-text in out |
+     * solution-to-binary instance in out | solution-to-text instance in out;
+     * prints the usage and exits with status 2 on any other command line
+     * @param args command line arguments
+     * @throws IOException on read or write failure
+     */
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "";
+        switch (command) {
+            case "instance-to-binary":
+                if (args.length == 3 || args.length == 4 && args[3].equals("--distances")) {
+                    instanceTextToBinary(args[1], args[2], args.length == 4);
+                    return;
+                }
+                break;
+            case "instance-to-text":
+                if (args.length == 3) {
+                    instanceBinaryToText(args[1], args[2]);
+                    return;
+                }
+                break;
+            case "solution-to-binary":
+                if (args.length == 4) {
+                    solutionTextToBinary(args[2], args[3], InstanceReader.read(args[1]));
+                    return;
+                }
+                break;
+            case "solution-to-text":
+                if (args.length == 4) {
+                    solutionBinaryToText(args[2], args[3], InstanceReader.read(args[1]));
+                    return;
+                }
+                break;
+            default:
+                if (!command.isEmpty()) {
+                    System.err.println("Unknown command: " + command);
+                }
+        }
+        System.err.println("Usage: BinaryFormat instance-to-binary in out [--distances] | instance-to-text in out |");
+        System.err.println("       solution-to-binary instance in out | solution-to-text instance in out");
+        System.exit(2);
+    }
+}
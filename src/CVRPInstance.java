@@ -1,9 +1,17 @@
 package src;
 
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
 /**
  * This class represents a CVRP instance
  */
 public class CVRPInstance {
+    /** instances with at least this many nodes build their distance matrix on all cores */
+    private static final int PARALLEL_THRESHOLD = 2000;
+    /** tile size of the blocked mirror pass */
+    private static final int BLOCK = 64;
+
     private final int nodes;
     private final int capacity;
     private final int[] x;
@@ -29,20 +37,70 @@ public class CVRPInstance {
     }
 
     /**
-     * Compute distance matrix (Euclidean distance rounded to nearest integer)
+     * Constructor with a precomputed distance matrix (e.g. loaded from a binary instance file)
+     * @param nodes customers + depot (node 1)
+     * @param capacity vehicle capacity
+     * @param x x-coordinates
+     * @param y y-coordinates
+     * @param demand demand of each node
+     * @param distance distance matrix indexed [1..nodes][1..nodes]
+     */
+    public CVRPInstance(int nodes, int capacity, int[] x, int[] y, int[] demand, int[][] distance) {
+        this.nodes = nodes;
+        this.capacity = capacity;
+        this.x = x;
+        this.y = y;
+        this.demand = demand;
+        this.distance = distance;
+    }
+
+    /**
+     * Compute distance matrix (Euclidean distance rounded to nearest integer).
+     * Only the upper triangle is computed, row by row with a branch-free inner loop over the
+     * coordinate arrays (which the JIT can vectorize), and then mirrored in cache-sized tiles.
+     * Large instances split both passes across cores.
      * @return distance matrix
      */
     private int[][] computeDistanceMatrix() {
         int[][] d = new int[nodes + 1][nodes + 1];
-        for (int i = 1; i <= nodes; i++) {
-            for (int j = 1; j <= nodes; j++) {
-                int dx = x[i] - x[j];
-                int dy = y[i] - y[j];
-                double dist = Math.sqrt(dx * dx + dy * dy);
-                d[i][j] = (int) Math.round(dist);
+        boolean parallel = nodes >= PARALLEL_THRESHOLD;
+
+        IntStream rows = IntStream.rangeClosed(1, nodes);
+        (parallel ? rows.parallel() : rows).forEach(i -> fillUpperRow(d[i], i));
+
+        IntStream blocks = IntStream.range(0, (nodes + BLOCK) / BLOCK);
+        (parallel ? blocks.parallel() : blocks).forEach(b -> mirrorBlockRow(d, b));
+        return d;
+    }
+
+    /**
+     * Fills row[j] = distance(i, j) for all j > i.
+     */
+    private void fillUpperRow(int[] row, int i) {
+        double xi = x[i];
+        double yi = y[i];
+        for (int j = i + 1; j <= nodes; j++) {
+            double dx = xi - x[j];
+            double dy = yi - y[j];
+            row[j] = (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+        }
+    }
+
+    /**
+     * Copies the upper triangle into the lower triangle for the rows of one tile row.
+     */
+    private void mirrorBlockRow(int[][] d, int block) {
+        int jStart = Math.max(1, block * BLOCK);
+        int jEnd = Math.min(nodes, block * BLOCK + BLOCK - 1);
+        for (int iStart = 1; iStart <= jEnd; iStart += BLOCK) {
+            int iEnd = Math.min(iStart + BLOCK - 1, jEnd);
+            for (int j = jStart; j <= jEnd; j++) {
+                int[] rowJ = d[j];
+                for (int i = iStart; i <= iEnd && i < j; i++) {
+                    rowJ[i] = d[i][j];
+                }
             }
         }
-        return d;
     }
 
     /**
@@ -53,6 +111,47 @@ public class CVRPInstance {
         return nodes;
     }
 
+    /**
+     * Checks if this is a plain CVRP instance: a single depot at node 1 and no time windows.
+     * Only such instances get the savings, sweep and bin-packing constructors, the TSP optimizer,
+     * the route cache and recombination; the others are built by InsertionHeuristic.
+     * @return true for every CVRPInstance; TWInstance overrides it
+     */
+    public boolean isPureCVRP() {
+        return true;
+    }
+
+    /**
+     * Finds a customer that no route can serve, since its demand alone exceeds the capacity.
+     * TWInstance also checks that some depot can serve the customer within the time windows.
+     * @return such a customer, or -1 if every customer can be served
+     */
+    public int findUnservableCustomer() {
+        for (int c = 2; c <= nodes; c++) {
+            if (demand[c] > capacity) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if node i is a depot.
+     * @param i node index
+     * @return true for node 1; TWInstance overrides it
+     */
+    public boolean isDepot(int i) {
+        return i == 1;
+    }
+
+    /**
+     * Gets the depot node ids.
+     * @return {1}; TWInstance overrides it
+     */
+    public int[] getDepots() {
+        return new int[]{1};
+    }
+
     /**
      * Gets vehicle capacity
      * @return vehicle capacity
@@ -97,4 +196,90 @@ public class CVRPInstance {
     public int getDistance(int i, int j) {
         return distance[i][j];
     }
+
+    /**
+     * Gets all distances from node i, for batched evaluation loops. The returned row is the
+     * instance's own storage and must not be modified.
+     * @param i node index (from)
+     * @return row of the distance matrix, indexed by the destination node
+     */
+    public int[] getDistanceRow(int i) {
+        return distance[i];
+    }
+
+    /**
+     * Creates a copy of this instance with the demand of one customer changed.
+     * The distance matrix is shared, so this costs O(n).
+     * @param customer customer index
+     * @param newDemand new demand
+     * @return new instance
+     */
+    public CVRPInstance withDemand(int customer, int newDemand) {
+        int[] d = demand.clone();
+        d[customer] = newDemand;
+        return new CVRPInstance(nodes, capacity, x, y, d, distance);
+    }
+
+    /**
+     * Creates a copy of this instance with one extra customer, which gets index nodes + 1.
+     * Only the new row and column of the distance matrix are computed; the other rows are copied.
+     * @param cx x-coordinate of the new customer
+     * @param cy y-coordinate of the new customer
+     * @param customerDemand demand of the new customer
+     * @return new instance
+     */
+    public CVRPInstance withAddedCustomer(int cx, int cy, int customerDemand) {
+        int c = nodes + 1;
+        int[] nx = Arrays.copyOf(x, c + 1);
+        int[] ny = Arrays.copyOf(y, c + 1);
+        int[] nd = Arrays.copyOf(demand, c + 1);
+        nx[c] = cx;
+        ny[c] = cy;
+        nd[c] = customerDemand;
+
+        int[][] d = new int[c + 1][];
+        d[c] = new int[c + 1];
+        for (int i = 1; i <= nodes; i++) {
+            double dx = nx[i] - cx;
+            double dy = ny[i] - cy;
+            int dist = (int) Math.round(Math.sqrt(dx * dx + dy * dy));
+            d[i] = Arrays.copyOf(distance[i], c + 1);
+            d[i][c] = dist;
+            d[c][i] = dist;
+        }
+        return new CVRPInstance(c, capacity, nx, ny, nd, d);
+    }
+
+    /**
+     * Creates a copy of this instance without the given customer. To keep the node indices
+     * dense, the last node (index nodes) takes the index of the removed customer; a solution
+     * must be updated with CVRPSolution.relabel(nodes, customer) after removing the customer.
+     * @param customer customer index (not the depot)
+     * @return new instance with nodes - 1 nodes
+     */
+    public CVRPInstance withRemovedCustomer(int customer) {
+        if (customer <= 1 || customer > nodes) {
+            throw new IllegalArgumentException("Not a customer: " + customer);
+        }
+        int last = nodes;
+        int n = nodes - 1;
+        int[] nx = Arrays.copyOf(x, n + 1);
+        int[] ny = Arrays.copyOf(y, n + 1);
+        int[] nd = Arrays.copyOf(demand, n + 1);
+
+        int[][] d = new int[n + 1][];
+        for (int i = 1; i <= n; i++) {
+            int src = i == customer ? last : i;
+            d[i] = Arrays.copyOf(distance[src], n + 1);
+        }
+        if (customer != last) {
+            nx[customer] = x[last];
+            ny[customer] = y[last];
+            nd[customer] = demand[last];
+            for (int i = 1; i <= n; i++) {
+                d[i][customer] = i == customer ? 0 : distance[i][last];
+            }
+        }
+        return new CVRPInstance(n, capacity, nx, ny, nd, d);
+    }
 }
@@ -0,0 +1,101 @@
+package src;
+
+import java.util.List;
+
+/**
+ * Route evaluator for pure CVRP routes: deltas only look at the changed edges and
+ * feasibility is a single capacity comparison.
+ */
+public final class CVRPRouteEvaluator implements RouteEvaluator {
+    private final CVRPInstance instance;
+    private final int[] tour;
+    private final int load;
+    private final int distance;
+
+    /**
+     * Constructor
+     * @param instance CVRP instance
+     * @param customers customers of the route in visiting order
+     * @param depot depot the route starts and ends at
+     */
+    public CVRPRouteEvaluator(CVRPInstance instance, List<Integer> customers, int depot) {
+        this.instance = instance;
+        int size = customers.size();
+        this.tour = new int[size + 2];
+        tour[0] = depot;
+        tour[size + 1] = depot;
+        int l = 0;
+        int d = 0;
+        for (int p = 1; p <= size; p++) {
+            tour[p] = customers.get(p - 1);
+            l += instance.getDemand(tour[p]);
+            d += instance.getDistance(tour[p - 1], tour[p]);
+        }
+        this.load = l;
+        this.distance = size == 0 ? 0 : d + instance.getDistance(tour[size], depot);
+    }
+
+    @Override
+    public int size() {
+        return tour.length - 2;
+    }
+
+    @Override
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public int getLoad() {
+        return load;
+    }
+
+    @Override
+    public boolean isFeasible() {
+        return load <= instance.getCapacity();
+    }
+
+    @Override
+    public int removalDelta(int pos) {
+        int prev = tour[pos];
+        int c = tour[pos + 1];
+        int next = tour[pos + 2];
+        return instance.getDistance(prev, next) - instance.getDistance(prev, c) - instance.getDistance(c, next);
+    }
+
+    @Override
+    public boolean canRemove(int pos) {
+        return load - instance.getDemand(tour[pos + 1]) <= instance.getCapacity();
+    }
+
+    @Override
+    public int insertionDelta(int customer, int pos) {
+        int prev = tour[pos];
+        int next = tour[pos + 1];
+        return instance.getDistance(prev, customer) + instance.getDistance(customer, next) - instance.getDistance(prev, next);
+    }
+
+    @Override
+    public void insertionDeltas(int customer, int[] out) {
+        RouteUtils.insertionCosts(tour, tour.length - 2, customer, instance, out);
+    }
+
+    @Override
+    public boolean canInsert(int customer, int pos) {
+        return load + instance.getDemand(customer) <= instance.getCapacity();
+    }
+
+    @Override
+    public int replacementDelta(int pos, int customer) {
+        int prev = tour[pos];
+        int c = tour[pos + 1];
+        int next = tour[pos + 2];
+        return instance.getDistance(prev, customer) + instance.getDistance(customer, next)
+                - instance.getDistance(prev, c) - instance.getDistance(c, next);
+    }
+
+    @Override
+    public boolean canReplace(int pos, int customer) {
+        return load - instance.getDemand(tour[pos + 1]) + instance.getDemand(customer) <= instance.getCapacity();
+    }
+}
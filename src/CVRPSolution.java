@@ -15,6 +15,18 @@ public class CVRPSolution {
         this.routes.addAll(routes);
     }
     
+    /**
+     * Creates a deep copy of this solution, so it can be shared while the original is modified.
+     * @return copy of the solution
+     */
+    public CVRPSolution copy() {
+        CVRPSolution sol = new CVRPSolution();
+        for (Route r : routes) {
+            sol.addRoute(r.copy());
+        }
+        return sol;
+    }
+
     /**
      * Adds a route to the solution
      * @param route the route to add
@@ -53,7 +65,9 @@ public class CVRPSolution {
     }
 
     /**
-     * Checks if the solution is feasible for the given CVRP instance
+     * Checks if the solution is feasible for the given CVRP instance: every route within the
+     * capacity and, for instances with time windows or several depots, starting at a depot
+     * and meeting the time windows
      * @param instance CVRP instance
      * @return true if the solution is feasible, false otherwise
      */
@@ -62,7 +76,99 @@ public class CVRPSolution {
             if (r.getDemand() > instance.getCapacity()) {
                 return false;
             }
+            if (!instance.isPureCVRP() && (!instance.isDepot(r.getDepot())
+                    || !RouteEvaluator.of(instance, r.getCustomers(), r.getDepot()).isFeasible())) {
+                return false;
+            }
         }
         return true;
     }
+
+    /**
+     * Finds the route that visits a customer.
+     * @param customer customer to look for
+     * @return the route, or null if the customer is not visited
+     */
+    public Route findRoute(int customer) {
+        for (Route r : routes) {
+            if (r.contains(customer)) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a customer from the solution. A route that becomes empty is dropped.
+     * @param customer customer to remove
+     * @param instance CVRP instance
+     * @return the route the customer was removed from, or null if it was not visited
+     */
+    public Route removeCustomer(int customer, CVRPInstance instance) {
+        Route r = findRoute(customer);
+        if (r == null) {
+            return null;
+        }
+        r.removeCustomer(customer, instance);
+        if (r.getCustomers().isEmpty()) {
+            routes.remove(r);
+        }
+        return r;
+    }
+
+    /**
+     * Inserts a customer at its cheapest position among the routes with enough spare capacity,
+     * or in a new route if that is cheaper or it fits nowhere.
+     * @param customer customer to insert (must not be visited yet)
+     * @param instance CVRP instance
+     * @return the route the customer was inserted in
+     */
+    public Route insertCheapest(int customer, CVRPInstance instance) {
+        int d = instance.getDemand(customer);
+        Route best = null;
+        int bestPos = -1;
+        int bestCost = 2 * instance.getDistance(1, customer);
+        int[] costs = new int[16];
+        for (Route r : routes) {
+            if (r.getDemand() + d > instance.getCapacity()) {
+                continue;
+            }
+            int size = r.getCustomers().size();
+            if (costs.length < size + 1) {
+                costs = new int[2 * (size + 1)];
+            }
+            RouteUtils.insertionCosts(RouteUtils.toTour(r.getCustomers()), size, customer, instance, costs);
+            for (int p = 0; p <= size; p++) {
+                if (costs[p] < bestCost) {
+                    bestCost = costs[p];
+                    best = r;
+                    bestPos = p;
+                }
+            }
+        }
+        if (best == null) {
+            best = new Route();
+            best.addCustomerToEnd(customer, instance);
+            routes.add(best);
+        } else {
+            best.insertCustomer(bestPos, customer, instance);
+        }
+        return best;
+    }
+
+    /**
+     * Renames a customer in the solution, e.g. after CVRPInstance.withRemovedCustomer moved the
+     * last node into the slot of the removed one.
+     * @param from old customer index
+     * @param to new customer index
+     * @return the route of the customer, or null if it was not visited
+     */
+    public Route relabel(int from, int to) {
+        for (Route r : routes) {
+            if (r.relabel(from, to)) {
+                return r;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,58 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * Compares the run time and quality of the construction heuristics on the shipped instances:
+ * the greedy savings heuristic, GRASP's randomized savings construction, the
+ * bin-packing construction and the randomized sweep. Costs are reported before and after VND.
+ */
+public class ConstructionBenchmark {
+    private static final int REPETITIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        double alpha = 0.3;
+        GRASP grasp = new GRASP(alpha);
+        RandomizedConstructor[] constructors = {
+                (inst, rng) -> new SavingsHeuristic().construct(inst),
+                grasp::constructInitalSol,
+                new BinPackingHeuristic(alpha),
+                new SweepHeuristic(alpha)
+        };
+        String[] names = {"Savings", "Randomized savings", "Bin-packing", "Sweep"};
+
+        for (int i = 1; i <= 5; i++) {
+            CVRPInstance inst = InstanceReader.read("instances/instance" + i + ".txt");
+            System.out.println("Instance " + i + " (vehicle bound " + LowerBound.computeVehicleBound(inst) + ")");
+
+            for (int c = 0; c < constructors.length; c++) {
+                Random rng = new Random(42);
+                long constructNanos = 0;
+                long vndNanos = 0;
+                long cost = 0;
+                long vndCost = 0;
+                long routes = 0;
+
+                for (int rep = 0; rep < REPETITIONS; rep++) {
+                    long t0 = System.nanoTime();
+                    CVRPSolution sol = constructors[c].construct(inst, rng);
+                    long t1 = System.nanoTime();
+                    cost += sol.getTotalDistance(inst);
+                    routes += sol.getNumberOfRoutes();
+
+                    new VND().solve(sol, inst);
+                    long t2 = System.nanoTime();
+                    vndCost += sol.getTotalDistance(inst);
+
+                    constructNanos += t1 - t0;
+                    vndNanos += t2 - t1;
+                }
+
+                System.out.printf("  %-20s construct %8.3f ms  cost %7.1f  routes %5.1f  | VND %8.3f ms  cost %7.1f%n",
+                        names[c],
+                        constructNanos / 1e6 / REPETITIONS, (double) cost / REPETITIONS, (double) routes / REPETITIONS,
+                        vndNanos / 1e6 / REPETITIONS, (double) vndCost / REPETITIONS);
+            }
+        }
+    }
+}
@@ -1,18 +1,191 @@
 package src;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class implements a GRASP heuristic for the CVRP.
+ * Instances with time windows or several depots are constructed with InsertionHeuristic,
+ * whatever the configured constructor, and are solved without recombination and lower bound.
  */
 public class GRASP {
+    private static final int ELITE_SIZE = 10;
+    /** pseudo iteration indices of solutions that were not constructed by an iteration */
+    private static final long MIGRANT = -1;
+    private static final long WARM_START = -2;
+    private static final long RECOMBINATION = -3;
+
     private final double alpha;
     private final VND vnd;
-    private final Random rng = new Random(42);
+    private final RandomizedConstructor constructor;
+    private long seed = 42;
+    private int threads = 1;
+    private long maxIterations = 0;
+    private long iterations = 0;
+    private boolean verbose = true;
+    private List<CVRPSolution> warmStart = List.of();
+    private List<CVRPSolution> elite = List.of();
+    private SolutionStreamWriter solutionLog;
+    private LowerBound lowerBound;
+    private boolean gapReporting = false;
+    private double targetGap = 0.0;
+    private MigrationChannel migration;
+    private int islandId;
+    private long migrationIntervalMillis;
+    private RoutePool routePool;
+    private long recombinationInterval;
+    private long recombinationNodes;
 
     public GRASP(double alpha) {
         this.alpha = alpha;
         this.vnd = new VND();
+        this.constructor = this::constructInitalSol;
+    }
+
+    /**
+     * Constructor with an alternative randomized construction heuristic.
+     * @param alpha RCL parameter (only used by the default savings construction and by
+     *              InsertionHeuristic on instances with time windows or several depots)
+     * @param constructor construction heuristic used at the start of every iteration
+     */
+    public GRASP(double alpha, RandomizedConstructor constructor) {
+        this(alpha, constructor, new VND());
+    }
+
+    /**
+     * Constructor with an alternative construction heuristic and local search.
+     * @param alpha RCL parameter (only used by the default savings construction and by
+     *              InsertionHeuristic on instances with time windows or several depots)
+     * @param constructor construction heuristic, or null for the randomized savings construction
+     * @param vnd local search applied to every constructed solution
+     */
+    public GRASP(double alpha, RandomizedConstructor constructor, VND vnd) {
+        this.alpha = alpha;
+        this.vnd = vnd;
+        this.constructor = constructor != null ? constructor : this::constructInitalSol;
+    }
+
+    /**
+     * Sets the run seed. Iteration i of a solve draws from its own random stream derived from
+     * (seed, i), so its construction is reproducible independently of threads and timing.
+     * @param seed new seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of threads running GRASP iterations in parallel. Every extra thread
+     * gets its own copy of the VND; the construction heuristic must be stateless.
+     * @param threads number of threads (1 runs everything on the calling thread)
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Turns the progress output of solve (new best solutions, gaps, profile) on or off.
+     * @param verbose false to solve silently, e.g. inside a service
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Limits the number of iterations of a solve, in addition to the time limit.
+     * @param maxIterations maximum number of iterations, or 0 for no limit
+     */
+    public void setMaxIterations(long maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Gets the number of iterations completed by the last solve.
+     * @return number of iterations
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Makes this GRASP an island of an island model: every interval it publishes its best
+     * solution to the channel and imports the global best when that is better than its own.
+     * Imported solutions are first improved with this island's own VND.
+     * @param channel migration channel shared by the islands, or null to disable migration
+     * @param islandId id of this island
+     * @param intervalMillis time between migrations
+     */
+    public void setMigration(MigrationChannel channel, int islandId, long intervalMillis) {
+        this.migration = channel;
+        this.islandId = islandId;
+        this.migrationIntervalMillis = intervalMillis;
+    }
+
+    /**
+     * Collects the routes of every local optimum in a route pool and recombines them every few
+     * iterations: the cheapest set of disjoint pooled routes that visits every customer (see
+     * RoutePool.recombine) is improved with VND and offered like the result of an iteration.
+     * Good routes of solutions that were not the best are kept this way.
+     * @param pool route pool, or null to disable recombination
+     * @param intervalIterations number of iterations between recombinations
+     * @param nodeLimit search node limit of one recombination
+     */
+    public void setRecombination(RoutePool pool, long intervalIterations, long nodeLimit) {
+        if (pool != null && intervalIterations < 1) {
+            throw new IllegalArgumentException("intervalIterations must be at least 1");
+        }
+        this.routePool = pool;
+        this.recombinationInterval = intervalIterations;
+        this.recombinationNodes = nodeLimit;
+    }
+
+    /**
+     * Gets the route pool used for recombination.
+     * @return route pool, or null if recombination is disabled
+     */
+    public RoutePool getRoutePool() {
+        return routePool;
+    }
+
+    /**
+     * Sets a writer to which every new best solution found by solve is appended.
+     * Use an async writer to keep the disk writes off the search thread.
+     * @param solutionLog writer for improving solutions, or null to disable logging
+     */
+    public void setSolutionLog(SolutionStreamWriter solutionLog) {
+        this.solutionLog = solutionLog;
+    }
+
+    /**
+     * Sets a lower bound used to report the optimality gap of every new best solution.
+     * Its subgradient optimization is started in the background when solve begins.
+     * The bound only holds for plain CVRP instances and is not used for others.
+     * @param lowerBound lower bound for the instance being solved, or null to disable
+     * @param targetGap stop as soon as the relative gap is at most this value (0 to never stop early)
+     */
+    public void setLowerBound(LowerBound lowerBound, double targetGap) {
+        this.lowerBound = lowerBound;
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * Makes every solve compute a lower bound for the instance it solves, to report the gap and
+     * stop early as with setLowerBound; a bound set with setLowerBound is used instead.
+     * @param enabled true to compute a lower bound in every solve
+     * @param targetGap stop as soon as the relative gap is at most this value (0 to never stop early)
+     */
+    public void setGapReporting(boolean enabled, double targetGap) {
+        this.gapReporting = enabled;
+        this.targetGap = targetGap;
     }
 
     /**
@@ -22,28 +195,354 @@ public class GRASP {
      * @return
      */
     public CVRPSolution solve(CVRPInstance instance, long timeLimitMillis) {
-        long start = System.currentTimeMillis();
-
         // initialization
-        CVRPSolution bestSol = null;
-        int bestDist = Integer.MAX_VALUE;
+        LowerBound bound = !instance.isPureCVRP() ? null
+                : lowerBound != null ? lowerBound : gapReporting ? new LowerBound(instance) : null;
+        Search search = new Search(instance, System.currentTimeMillis(), timeLimitMillis, bound);
+        if (bound != null) {
+            bound.startAsync(Integer.MAX_VALUE);
+        }
 
-        while (System.currentTimeMillis() - start < timeLimitMillis) {
-            // construct randomized greedy solution
-            CVRPSolution sol = constructInitalSol(instance);
+        // previous solutions are repaired for the current instance and go straight through VND
+        for (CVRPSolution start : warmStart) {
+            CVRPSolution sol = vnd.solve(SolutionRepair.repair(start, instance), instance);
+            search.offer(sol, computeSolutionDistance(sol, instance), WARM_START);
+        }
+
+        if (threads <= 1) {
+            runIterations(search, vnd);
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread t = new Thread(r, "grasp-worker");
+                t.setDaemon(true);
+                return t;
+            });
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 1; t < threads; t++) {
+                VND workerVnd = vnd.copy();
+                workers.add(pool.submit(() -> runIterations(search, workerVnd)));
+            }
+            try {
+                runIterations(search, vnd);
+            } finally {
+                search.stopped = true;
+                pool.shutdown();
+            }
+            awaitWorkers(workers);
+        }
+
+        if (bound != null) {
+            bound.stop();
+        }
+        iterations = maxIterations > 0 ? Math.min(search.nextIteration.get(), maxIterations) : search.nextIteration.get();
+        if (Profiler.ENABLED && verbose) {
+            System.out.print("Latency profile (" + iterations + " iterations):" + System.lineSeparator() + Profiler.report());
+        }
+        if (migration != null && search.bestSol != null && search.bestDist < search.lastPublished) {
+            try {
+                migration.publish(islandId, search.bestSol, search.bestDist);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        elite = List.copyOf(search.elite);
+        return search.bestSol;
+    }
+
+    /**
+     * Sets solutions of earlier runs to start from, e.g. read with SolutionReader. They may be
+     * infeasible for the instance being solved (changed demands, added or removed customers):
+     * they are repaired with SolutionRepair and improved with VND before the first iteration,
+     * and seed both the best solution and the elite set.
+     * @param solutions start solutions, or an empty list to start from scratch
+     */
+    public void setWarmStart(List<CVRPSolution> solutions) {
+        this.warmStart = List.copyOf(solutions);
+    }
+
+    /**
+     * Gets the elite set of the last solve: its best solutions with distinct costs, best first.
+     * Written to a file with SolutionStreamWriter it can warm-start a later run.
+     * @return elite solutions
+     */
+    public List<CVRPSolution> getElite() {
+        return elite;
+    }
+
+    /**
+     * Repeats the construction of one GRASP iteration. The result only depends on the seed and
+     * the iteration index, not on the thread or the order in which iterations were run.
+     * @param instance CVRP instance
+     * @param iteration iteration index (0 for the first iteration of a solve)
+     * @return the constructed solution, before local search
+     */
+    public CVRPSolution constructIteration(CVRPInstance instance, long iteration) {
+        RandomizedConstructor c = instance.isPureCVRP() ? constructor : new InsertionHeuristic(alpha);
+        return c.construct(instance, RandomStreams.stream(seed, iteration));
+    }
+
+    /**
+     * Runs GRASP iterations until the search stops; called by every worker thread.
+     * @param search shared search state
+     * @param localVnd local search owned by the calling thread
+     */
+    private void runIterations(Search search, VND localVnd) {
+        CVRPInstance instance = search.instance;
+        while (!search.stopped && System.currentTimeMillis() - search.start < search.timeLimitMillis) {
+            // construct randomized greedy solution from this iteration's own random stream
+            long iterationStart = Profiler.start();
+            long iteration = search.nextIteration.getAndIncrement();
+            if (maxIterations > 0 && iteration >= maxIterations) {
+                break;
+            }
+            CVRPSolution sol = constructIteration(instance, iteration);
+            Profiler.record(Profiler.CONSTRUCTION, iterationStart);
 
             // improve solution using VND
-            sol = vnd.solve(sol, instance);
+            sol = localVnd.solve(sol, instance);
 
             // update best solution found so far
-            int cost = computeSolutionDistance(sol, instance);
-            if (cost < bestDist) {
-                bestDist = cost;
-                bestSol = sol;
-                System.out.println("--> NEW BEST SOLUTION: " + bestDist);
+            search.offer(sol, computeSolutionDistance(sol, instance), iteration);
+            Profiler.record(Profiler.GRASP_ITERATION, iterationStart);
+
+            // keep the routes and periodically recombine the best of them
+            if (routePool != null && instance.isPureCVRP()) {
+                routePool.addAll(sol, instance);
+                if ((iteration + 1) % recombinationInterval == 0) {
+                    recombine(search, localVnd);
+                }
+            }
+
+            // exchange elite solutions with the other islands
+            if (migration != null) {
+                Search.Snapshot snapshot = search.migrationDue();
+                if (snapshot != null) {
+                    CVRPSolution migrant = migrate(instance, snapshot, localVnd);
+                    if (migrant != null) {
+                        search.offer(migrant, computeSolutionDistance(migrant, instance), MIGRANT);
+                    }
+                }
+            }
+
+            // stop early once the live gap is small enough
+            if (search.lowerBound != null && targetGap > 0 && search.lowerBound.gap(search.getBestDist()) <= targetGap) {
+                if (search.stop() && verbose) {
+                    System.out.println("--> TARGET GAP REACHED");
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the worker threads and rethrows the first failure.
+     * @param workers futures of the worker threads
+     */
+    private static void awaitWorkers(List<Future<?>> workers) {
+        RuntimeException failure = null;
+        for (Future<?> f : workers) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException("Interrupted while waiting for GRASP workers", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (failure == null) {
+                    failure = cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Search state shared by the worker threads of one solve.
+     */
+    private final class Search {
+        final CVRPInstance instance;
+        final long start;
+        final long timeLimitMillis;
+        final LowerBound lowerBound;
+        final AtomicLong nextIteration = new AtomicLong();
+        volatile boolean stopped = false;
+
+        // guarded by this
+        CVRPSolution bestSol = null;
+        int bestDist = Integer.MAX_VALUE;
+        long lastMigration;
+        int lastPublished = Integer.MAX_VALUE;
+        final List<CVRPSolution> elite = new ArrayList<>();
+        final List<Integer> eliteCosts = new ArrayList<>();
+
+        /**
+         * Best solution and whether it still has to be published, taken at a migration.
+         */
+        final class Snapshot {
+            final CVRPSolution sol;
+            final int dist;
+            final boolean publish;
+
+            Snapshot(CVRPSolution sol, int dist, boolean publish) {
+                this.sol = sol;
+                this.dist = dist;
+                this.publish = publish;
+            }
+        }
+
+        Search(CVRPInstance instance, long start, long timeLimitMillis, LowerBound lowerBound) {
+            this.instance = instance;
+            this.start = start;
+            this.timeLimitMillis = timeLimitMillis;
+            this.lowerBound = lowerBound;
+            this.lastMigration = start;
+        }
+
+        /**
+         * Offers a solution to the elite set and as new best solution.
+         * @param sol candidate solution
+         * @param cost its total distance
+         * @param iteration GRASP iteration that produced it, or MIGRANT / WARM_START
+         */
+        synchronized void offer(CVRPSolution sol, int cost, long iteration) {
+            offerElite(sol, cost);
+            if (cost >= bestDist) {
+                return;
+            }
+            bestDist = cost;
+            bestSol = sol;
+            if (iteration == MIGRANT) {
+                if (verbose) {
+                    System.out.println("--> MIGRANT ACCEPTED: " + bestDist);
+                }
+                return;
+            }
+            if (verbose) {
+                System.out.println(iteration == WARM_START ? "--> WARM START SOLUTION: " + bestDist
+                        : iteration == RECOMBINATION ? "--> RECOMBINED SOLUTION: " + bestDist
+                        : "--> NEW BEST SOLUTION: " + bestDist + " (iteration " + iteration + ")");
+            }
+            logSolution(bestSol);
+            if (lowerBound != null) {
+                lowerBound.offerUpperBound(bestDist);
+                if (verbose) {
+                    System.out.printf("    lower bound %d, gap %.2f%%%n", lowerBound.getBound(), 100 * lowerBound.gap(bestDist));
+                }
+            }
+        }
+
+        /**
+         * Keeps the ELITE_SIZE best solutions with distinct costs, sorted by increasing cost.
+         */
+        private void offerElite(CVRPSolution sol, int cost) {
+            int pos = 0;
+            while (pos < eliteCosts.size() && eliteCosts.get(pos) < cost) {
+                pos++;
+            }
+            if (pos == ELITE_SIZE || (pos < eliteCosts.size() && eliteCosts.get(pos) == cost)) {
+                return;
+            }
+            elite.add(pos, sol);
+            eliteCosts.add(pos, cost);
+            if (elite.size() > ELITE_SIZE) {
+                elite.remove(ELITE_SIZE);
+                eliteCosts.remove(ELITE_SIZE);
+            }
+        }
+
+        synchronized int getBestDist() {
+            return bestDist;
+        }
+
+        synchronized CVRPSolution getBestSol() {
+            return bestSol;
+        }
+
+        /**
+         * Checks whether a migration is due and, if so, claims it for the calling thread.
+         * @return the solution to publish, or null if no migration is due
+         */
+        synchronized Snapshot migrationDue() {
+            long now = System.currentTimeMillis();
+            if (now - lastMigration < migrationIntervalMillis) {
+                return null;
             }
+            lastMigration = now;
+            Snapshot snapshot = new Snapshot(bestSol, bestDist, bestDist < lastPublished);
+            lastPublished = Math.min(lastPublished, bestDist);
+            return snapshot;
+        }
+
+        /**
+         * Stops the search.
+         * @return true if this call stopped it, false if it was already stopped
+         */
+        synchronized boolean stop() {
+            if (stopped) {
+                return false;
+            }
+            stopped = true;
+            return true;
+        }
+    }
+
+    /**
+     * Recombines the routes of the pool with the best solution, improves the result with the
+     * calling thread's VND and offers it.
+     * @param search search state
+     * @param localVnd local search of the calling thread
+     */
+    private void recombine(Search search, VND localVnd) {
+        CVRPSolution best = search.getBestSol();
+        if (best == null) {
+            return;
+        }
+        long start = Profiler.start();
+        CVRPSolution sol = routePool.recombine(search.instance, best, recombinationNodes);
+        if (sol != null) {
+            sol = localVnd.solve(sol, search.instance);
+            routePool.addAll(sol, search.instance);
+            search.offer(sol, computeSolutionDistance(sol, search.instance), RECOMBINATION);
+        }
+        Profiler.record(Profiler.RECOMBINATION, start);
+    }
+
+    /**
+     * Publishes the island's best solution (if requested) and fetches the global best.
+     * @param instance CVRP instance
+     * @param snapshot this island's best solution when the migration started
+     * @param localVnd local search of the calling thread
+     * @return the global best improved with this island's VND if it beats the snapshot, null otherwise
+     */
+    private CVRPSolution migrate(CVRPInstance instance, Search.Snapshot snapshot, VND localVnd) {
+        try {
+            if (snapshot.publish && snapshot.sol != null) {
+                migration.publish(islandId, snapshot.sol, snapshot.dist);
+            }
+            if (migration.bestCost() >= snapshot.dist) {
+                return null;
+            }
+            CVRPSolution migrant = migration.fetchBest(instance);
+            return migrant == null ? null : localVnd.solve(migrant, instance);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a solution to the solution log, if one is set.
+     * @param sol solution to log
+     */
+    private void logSolution(CVRPSolution sol) {
+        if (solutionLog == null) {
+            return;
+        }
+        try {
+            solutionLog.write(sol);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return bestSol;
     }
 
     /**
@@ -64,9 +563,10 @@ public class GRASP {
     /**
      * Constructs an initial solution using a randomized savings heuristic.
      * @param instance CVRP instance
+     * @param rng random source for the RCL choices
      * @return initial solution for GRASP
      */
-    private CVRPSolution constructInitalSol(CVRPInstance instance) {
+    CVRPSolution constructInitalSol(CVRPInstance instance, Random rng) {
         int n = instance.getNodes();
         int Q = instance.getCapacity();
 
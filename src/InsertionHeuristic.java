@@ -0,0 +1,202 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cheapest insertion construction for every instance, and the only one for instances with time
+ * windows or several depots, which the savings, sweep and bin-packing heuristics do not handle.
+ *
+ * Customers are taken most urgent first (earliest due time, then farthest from their nearest
+ * depot) and each is inserted where it costs least and its route stays feasible, capacity and
+ * time windows checked in O(1) per position by RouteEvaluator. Opening a new route from any
+ * depot that can serve the customer alone is always an option. The randomized version picks
+ * among the options whose cost is within alpha of the range between the cheapest and the
+ * dearest, one per route plus the new routes (a restricted candidate list, as in GRASP).
+ *
+ * A customer that no depot can serve in time (see CVRPInstance.findUnservableCustomer) still
+ * gets a route of its own from its nearest depot, which is then infeasible.
+ */
+public class InsertionHeuristic implements RandomizedConstructor {
+    private final double alpha;
+
+    /**
+     * Constructor
+     * @param alpha greediness of the randomized construction in [0, 1]: 0 always takes the
+     *              cheapest option, 1 any feasible one
+     */
+    public InsertionHeuristic(double alpha) {
+        this.alpha = alpha;
+    }
+
+    /**
+     * Constructs a CVRPSolution deterministically (no randomization).
+     * @param instance CVRP instance
+     * @return constructed CVRPSolution
+     */
+    public CVRPSolution construct(CVRPInstance instance) {
+        return build(instance, null);
+    }
+
+    /**
+     * Constructs a randomized CVRPSolution, for use as GRASP constructor.
+     * @param instance CVRP instance
+     * @param rng random source
+     * @return constructed CVRPSolution
+     */
+    @Override
+    public CVRPSolution construct(CVRPInstance instance, Random rng) {
+        return build(instance, rng);
+    }
+
+    private CVRPSolution build(CVRPInstance instance, Random rng) {
+        List<Integer> customers = new ArrayList<>();
+        for (int c = 2; c <= instance.getNodes(); c++) {
+            if (!instance.isDepot(c)) {
+                customers.add(c);
+            }
+        }
+        List<Route> routes = new ArrayList<>();
+        insert(routes, customers, instance, rng);
+
+        CVRPSolution sol = new CVRPSolution();
+        for (Route r : routes) {
+            sol.addRoute(r);
+        }
+        return sol;
+    }
+
+    /**
+     * Inserts customers into a list of routes, most urgent first, each at its cheapest feasible
+     * position or on a new route. Routes that are changed are replaced by new Route objects.
+     * @param routes routes to extend; new routes are appended
+     * @param customers customers to insert, none of them visited by the routes
+     * @param instance CVRP instance
+     * @param rng random source, or null for the deterministic cheapest choice
+     */
+    void insert(List<Route> routes, List<Integer> customers, CVRPInstance instance, Random rng) {
+        int[] depots = instance.getDepots();
+        int[] nearestDepot = new int[instance.getNodes() + 1];
+        for (int c : customers) {
+            int best = depots[0];
+            for (int d : depots) {
+                if (instance.getDistance(d, c) < instance.getDistance(best, c)) {
+                    best = d;
+                }
+            }
+            nearestDepot[c] = best;
+        }
+
+        TWInstance tw = instance instanceof TWInstance && ((TWInstance) instance).hasTimeWindows()
+                ? (TWInstance) instance : null;
+        List<Integer> order = new ArrayList<>(customers);
+        order.sort((a, b) -> {
+            if (tw != null && tw.getDue(a) != tw.getDue(b)) {
+                return Integer.compare(tw.getDue(a), tw.getDue(b));
+            }
+            return Integer.compare(instance.getDistance(nearestDepot[b], b), instance.getDistance(nearestDepot[a], a));
+        });
+
+        List<RouteEvaluator> evaluators = new ArrayList<>(routes.size());
+        int maxSize = 0;
+        for (Route r : routes) {
+            evaluators.add(RouteEvaluator.of(instance, r.getCustomers(), r.getDepot()));
+            maxSize = Math.max(maxSize, r.getCustomers().size());
+        }
+        int[] costs = new int[maxSize + customers.size() + 1];
+
+        // options for one customer: route index (or -1 - depot for a new route), position, cost
+        int optionCount = routes.size() + customers.size() + depots.length;
+        int[] optionRoute = new int[optionCount];
+        int[] optionPos = new int[optionCount];
+        int[] optionCost = new int[optionCount];
+
+        for (int c : order) {
+            int options = 0;
+            for (int k = 0; k < routes.size(); k++) {
+                RouteEvaluator e = evaluators.get(k);
+                e.insertionDeltas(c, costs);
+                int bestPos = -1;
+                for (int p = 0; p <= e.size(); p++) {
+                    if ((bestPos < 0 || costs[p] < costs[bestPos]) && e.canInsert(c, p)) {
+                        bestPos = p;
+                    }
+                }
+                if (bestPos >= 0) {
+                    optionRoute[options] = k;
+                    optionPos[options] = bestPos;
+                    optionCost[options++] = costs[bestPos];
+                }
+            }
+            for (int d : depots) {
+                List<Integer> single = List.of(c);
+                RouteEvaluator e = RouteEvaluator.of(instance, single, d);
+                if (e.isFeasible()) {
+                    optionRoute[options] = -1 - d;
+                    optionPos[options] = 0;
+                    optionCost[options++] = e.getDistance();
+                }
+            }
+
+            int chosen = choose(optionCost, options, rng);
+            if (chosen < 0) {
+                // nothing is feasible: a route of its own from the nearest depot
+                optionRoute[0] = -1 - nearestDepot[c];
+                optionPos[0] = 0;
+                chosen = 0;
+            }
+            if (optionRoute[chosen] < 0) {
+                Route r = new Route(List.of(c), instance, -1 - optionRoute[chosen]);
+                routes.add(r);
+                evaluators.add(RouteEvaluator.of(instance, r.getCustomers(), r.getDepot()));
+            } else {
+                int k = optionRoute[chosen];
+                Route old = routes.get(k);
+                List<Integer> extended = new ArrayList<>(old.getCustomers());
+                extended.add(optionPos[chosen], c);
+                Route r = new Route(extended, instance, old.getDepot());
+                routes.set(k, r);
+                evaluators.set(k, RouteEvaluator.of(instance, r.getCustomers(), r.getDepot()));
+            }
+        }
+    }
+
+    /**
+     * Picks an option: the cheapest, or with rng a random one among those whose cost is at most
+     * min + alpha * (max - min).
+     * @return index of the option, or -1 if there are none
+     */
+    private int choose(int[] cost, int count, Random rng) {
+        if (count == 0) {
+            return -1;
+        }
+        int min = 0;
+        int max = 0;
+        for (int k = 1; k < count; k++) {
+            if (cost[k] < cost[min]) {
+                min = k;
+            }
+            if (cost[k] > cost[max]) {
+                max = k;
+            }
+        }
+        if (rng == null) {
+            return min;
+        }
+        double threshold = cost[min] + alpha * (cost[max] - cost[min]);
+        int candidates = 0;
+        for (int k = 0; k < count; k++) {
+            if (cost[k] <= threshold) {
+                candidates++;
+            }
+        }
+        int pick = rng.nextInt(candidates);
+        for (int k = 0; k < count; k++) {
+            if (cost[k] <= threshold && pick-- == 0) {
+                return k;
+            }
+        }
+        return min;
+    }
+}
@@ -0,0 +1,123 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * Seeded generator of synthetic CVRP instances, loosely following the Uchoa et al. (2017)
+ * benchmark design: customer layout, depot position and route length are set independently.
+ *
+ * Layouts: UNIFORM places customers uniformly on the grid, CLUSTERED around a few random centres
+ * (Gaussian spread), MIXED puts half of them in clusters and half uniformly.
+ * Depot positions: CENTRAL (grid centre), ECCENTRIC (grid corner) or RANDOM.
+ * Demands are uniform in [1, 100]; the capacity is chosen so that a route serves on average
+ * the requested number of customers, i.e. the demand/capacity ratio sets the route length.
+ *
+ * The same parameters and seed always give the same instance. Instances can be written with
+ * InstanceWriter and read back with InstanceReader.
+ */
+public class InstanceGenerator {
+    public enum Layout { UNIFORM, CLUSTERED, MIXED }
+    public enum DepotPosition { CENTRAL, ECCENTRIC, RANDOM }
+
+    private static final int GRID = 1000;
+    private static final int MAX_DEMAND = 100;
+
+    private final Layout layout;
+    private final DepotPosition depotPosition;
+    private final double customersPerRoute;
+
+    /**
+     * Constructor
+     * @param layout customer layout
+     * @param depotPosition depot position
+     * @param customersPerRoute average number of customers a full vehicle can serve
+     */
+    public InstanceGenerator(Layout layout, DepotPosition depotPosition, double customersPerRoute) {
+        if (customersPerRoute < 1) {
+            throw new IllegalArgumentException("customersPerRoute must be at least 1");
+        }
+        this.layout = layout;
+        this.depotPosition = depotPosition;
+        this.customersPerRoute = customersPerRoute;
+    }
+
+    /**
+     * Generates an instance.
+     * @param nodes number of nodes including the depot (node 1)
+     * @param seed random seed
+     * @return the instance
+     */
+    public CVRPInstance generate(int nodes, long seed) {
+        if (nodes < 2) {
+            throw new IllegalArgumentException("An instance needs a depot and at least one customer");
+        }
+        Random rng = new Random(seed);
+        int[] x = new int[nodes + 1];
+        int[] y = new int[nodes + 1];
+        int[] demand = new int[nodes + 1];
+
+        switch (depotPosition) {
+            case CENTRAL:
+                x[1] = GRID / 2;
+                y[1] = GRID / 2;
+                break;
+            case ECCENTRIC:
+                x[1] = 0;
+                y[1] = 0;
+                break;
+            default:
+                x[1] = rng.nextInt(GRID + 1);
+                y[1] = rng.nextInt(GRID + 1);
+        }
+
+        // cluster centres: a few for small instances, more as the instance grows
+        int clusters = Math.max(3, (int) Math.round(Math.sqrt(nodes) / 2));
+        int[] cx = new int[clusters];
+        int[] cy = new int[clusters];
+        for (int s = 0; s < clusters; s++) {
+            cx[s] = rng.nextInt(GRID + 1);
+            cy[s] = rng.nextInt(GRID + 1);
+        }
+        double spread = GRID / (4.0 * Math.sqrt(clusters));
+
+        long totalDemand = 0;
+        for (int i = 2; i <= nodes; i++) {
+            boolean clustered = layout == Layout.CLUSTERED || (layout == Layout.MIXED && i % 2 == 0);
+            if (clustered) {
+                int s = rng.nextInt(clusters);
+                x[i] = clamp((int) Math.round(cx[s] + spread * rng.nextGaussian()));
+                y[i] = clamp((int) Math.round(cy[s] + spread * rng.nextGaussian()));
+            } else {
+                x[i] = rng.nextInt(GRID + 1);
+                y[i] = rng.nextInt(GRID + 1);
+            }
+            demand[i] = 1 + rng.nextInt(MAX_DEMAND);
+            totalDemand += demand[i];
+        }
+
+        double meanDemand = (double) totalDemand / (nodes - 1);
+        int capacity = Math.max(MAX_DEMAND, (int) Math.ceil(customersPerRoute * meanDemand));
+        return new CVRPInstance(nodes, capacity, x, y, demand);
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(GRID, v));
+    }
+
+    /**
+     * Writes a generated instance.
+     * Usage: InstanceGenerator nodes layout depot customersPerRoute seed outputFile
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 6) {
+            System.out.println("Usage: InstanceGenerator <nodes> <UNIFORM|CLUSTERED|MIXED> <CENTRAL|ECCENTRIC|RANDOM> "
+                    + "<customersPerRoute> <seed> <outputFile>");
+            return;
+        }
+        InstanceGenerator generator = new InstanceGenerator(Layout.valueOf(args[1].toUpperCase()),
+                DepotPosition.valueOf(args[2].toUpperCase()), Double.parseDouble(args[3]));
+        CVRPInstance instance = generator.generate(Integer.parseInt(args[0]), Long.parseLong(args[4]));
+        InstanceWriter.write(args[5], instance);
+        System.out.println("Wrote " + args[5] + ": " + instance.getNodes() + " nodes, capacity " + instance.getCapacity());
+    }
+}
@@ -1,11 +1,37 @@
 package src;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * This class reads a CVRP instance from a txt file
+ * This class reads a CVRP instance from a txt file.
+ * Files with a DEPOT_SECTION (depot ids, optionally terminated by -1) or a TIME_WINDOW_SECTION
+ * (lines "id ready due service") are read as a TWInstance, whose depots must include node 1.
  */
 public class InstanceReader {
     public static CVRPInstance read(String filePath) throws IOException {
+        try (Reader reader = new FileReader(filePath)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Parses an instance given as text, e.g. received over the network.
+     * @param text instance in the file format
+     * @return the instance
+     * @throws IOException if the text is not a valid instance
+     */
+    public static CVRPInstance parse(String text) throws IOException {
+        return read(new StringReader(text));
+    }
+
+    /**
+     * Reads an instance from a character stream. The stream is not closed.
+     * @param reader instance in the file format
+     * @return the instance
+     * @throws IOException if reading fails or the input is not a valid instance
+     */
+    public static CVRPInstance read(Reader reader) throws IOException {
         int nodes = 0;
         int capacity = 0;
 
@@ -13,10 +39,19 @@ public class InstanceReader {
         int[] y = null;
         int[] demand = null;
 
+        int[] ready = null;
+        int[] due = null;
+        int[] service = null;
+        List<Integer> depots = new ArrayList<>();
+
         boolean inCoords = false;
         boolean inDemand = false;
+        boolean inDepots = false;
+        boolean inWindows = false;
+        boolean extended = false;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+        try {
+            BufferedReader br = new BufferedReader(reader);
             String line;
 
             while ((line = br.readLine()) != null) {
@@ -34,12 +69,46 @@ public class InstanceReader {
                 } else if (line.startsWith("NODE_COORD")) {
                     inCoords = true;
                     inDemand = false;
+                    inDepots = false;
+                    inWindows = false;
                     x = new int[nodes + 1];
                     y = new int[nodes + 1];
                 } else if (line.startsWith("DEMAND")) {
                     inCoords = false;
                     inDemand = true;
+                    inDepots = false;
+                    inWindows = false;
                     demand = new int[nodes + 1];
+                } else if (line.startsWith("DEPOT")) {
+                    inCoords = false;
+                    inDemand = false;
+                    inDepots = true;
+                    inWindows = false;
+                    extended = true;
+                } else if (line.startsWith("TIME_WINDOW")) {
+                    inCoords = false;
+                    inDemand = false;
+                    inDepots = false;
+                    inWindows = true;
+                    extended = true;
+                    ready = new int[nodes + 1];
+                    due = new int[nodes + 1];
+                    service = new int[nodes + 1];
+                } else if (line.startsWith("EOF")) {
+                    break;
+                } else if (inDepots) {
+                    int id = Integer.parseInt(line.split("\\s+")[0]);
+                    if (id == -1) {
+                        inDepots = false;
+                    } else {
+                        depots.add(id);
+                    }
+                } else if (inWindows) {
+                    String[] parts = line.split("\\s+");
+                    int id = Integer.parseInt(parts[0]);
+                    ready[id] = Integer.parseInt(parts[1]);
+                    due[id] = Integer.parseInt(parts[2]);
+                    service[id] = parts.length > 3 ? Integer.parseInt(parts[3]) : 0;
                 } else if (inCoords) {
                     String[] parts = line.split("\\s+");
                     int id = Integer.parseInt(parts[0]);
@@ -54,6 +123,23 @@ public class InstanceReader {
                     demand[id] = di;
                 }
             }
+        } catch (RuntimeException e) {
+            // malformed numbers, ids out of range or sections in the wrong order
+            throw new IOException("Invalid instance: " + e, e);
+        }
+        if (nodes < 2 || capacity <= 0 || x == null || demand == null) {
+            throw new IOException("Invalid instance: DIMENSION, CAPACITY, NODE_COORD and DEMAND are required");
+        }
+        if (extended) {
+            if (depots.isEmpty()) {
+                depots.add(1);
+            }
+            int[] depotIds = depots.stream().mapToInt(Integer::intValue).toArray();
+            try {
+                return new TWInstance(nodes, capacity, x, y, demand, depotIds, ready, due, service);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid instance: " + e.getMessage(), e);
+            }
         }
         return new CVRPInstance(nodes, capacity, x, y, demand);
     }
@@ -0,0 +1,36 @@
+package src;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Utility class to write a CVRP instance to a txt file in the format read by InstanceReader.
+ */
+public class InstanceWriter {
+
+    public static void write(String filePath, CVRPInstance instance) throws IOException {
+        int n = instance.getNodes();
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filePath))) {
+            bw.write("DIMENSION : " + n);
+            bw.newLine();
+            bw.write("CAPACITY : " + instance.getCapacity());
+            bw.newLine();
+
+            bw.write("NODE_COORD");
+            bw.newLine();
+            for (int i = 1; i <= n; i++) {
+                bw.write(" " + i + " " + instance.getX(i) + " " + instance.getY(i));
+                bw.newLine();
+            }
+
+            bw.write("DEMAND");
+            bw.newLine();
+            for (int i = 1; i <= n; i++) {
+                bw.write(i + " " + instance.getDemand(i));
+                bw.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Island-model GRASP: several GRASP+VND searches, each with its own parameters, run in
+ * parallel and periodically exchange their best solutions through a MigrationChannel.
+ * Islands in one process share a LocalMigrationChannel; islands in different processes
+ * (or on different machines) meet at a MigrationHub through SocketMigrationChannels.
+ */
+public class IslandModel {
+
+    /**
+     * Parameters of one island.
+     */
+    public static class Island {
+        final double alpha;
+        final List<VND.Operator> order;
+        final long seed;
+
+        /**
+         * Constructor
+         * @param alpha RCL parameter of the island's GRASP
+         * @param order VND operator order of the island
+         * @param seed random seed of the island
+         */
+        public Island(double alpha, List<VND.Operator> order, long seed) {
+            this.alpha = alpha;
+            this.order = order;
+            this.seed = seed;
+        }
+
+        @Override
+        public String toString() {
+            return "alpha=" + alpha + " order=" + order + " seed=" + seed;
+        }
+    }
+
+    private final List<Island> islands;
+
+    public IslandModel(List<Island> islands) {
+        this.islands = new ArrayList<>(islands);
+    }
+
+    /**
+     * Creates diverse island settings: alpha spread over [0.1, 0.5] and the VND
+     * operator orders alternating between intra-route-first and inter-route-first.
+     * @param count number of islands
+     * @param firstId id of the first island, so islands of different processes get distinct seeds
+     * @return island settings
+     */
+    public static List<Island> defaultIslands(int count, int firstId) {
+        List<VND.Operator> interFirst = Arrays.asList(VND.Operator.INTER_RELOCATE, VND.Operator.SWAP_STAR,
+                VND.Operator.RELOCATE, VND.Operator.INTRA_SWAP, VND.Operator.OPT2);
+        List<Island> list = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            int id = firstId + k;
+            double alpha = 0.1 + 0.4 * ((id * 0.618034) % 1.0);
+            List<VND.Operator> order = id % 2 == 0 ? VND.DEFAULT_ORDER : interFirst;
+            list.add(new Island(Math.round(alpha * 100) / 100.0, order, 42 + id));
+        }
+        return list;
+    }
+
+    /**
+     * Runs all islands in parallel until the time limit.
+     * @param instance CVRP instance
+     * @param timeLimitMillis time limit in milliseconds
+     * @param migrationIntervalMillis time between migrations of each island
+     * @param channel channel shared by the islands
+     * @param firstId id of the first island of this model
+     * @return best solution found by the islands of this model
+     * @throws Exception if an island fails
+     */
+    public CVRPSolution solve(CVRPInstance instance, long timeLimitMillis, long migrationIntervalMillis,
+                              MigrationChannel channel, int firstId) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(islands.size());
+        try {
+            List<Future<CVRPSolution>> results = new ArrayList<>();
+            for (int k = 0; k < islands.size(); k++) {
+                Island island = islands.get(k);
+                int id = firstId + k;
+                results.add(pool.submit(() -> {
+                    GRASP grasp = new GRASP(island.alpha, null, new VND(island.order));
+                    grasp.setSeed(island.seed);
+                    grasp.setMigration(channel, id, migrationIntervalMillis);
+                    return grasp.solve(instance, timeLimitMillis);
+                }));
+            }
+
+            CVRPSolution best = null;
+            int bestDist = Integer.MAX_VALUE;
+            for (Future<CVRPSolution> f : results) {
+                CVRPSolution sol = f.get();
+                if (sol != null && sol.getTotalDistance(instance) < bestDist) {
+                    best = sol;
+                    bestDist = sol.getTotalDistance(instance);
+                }
+            }
+            return best;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs islands on one instance.
+     * Usage: IslandModel instance timeSeconds islands [firstId] [host:port | local-hub]
+     * Without a hub the islands migrate in memory; with host:port they connect to a running
+     * MigrationHub; local-hub starts a hub in this process and talks to it over TCP.
+     * @param args command line arguments
+     * @throws Exception on failure
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: IslandModel <instance> <timeSeconds> <islands> [firstId] [host:port|local-hub]");
+            return;
+        }
+        CVRPInstance inst = InstanceReader.read(args[0]);
+        int unservable = inst.findUnservableCustomer();
+        if (unservable != -1) {
+            System.err.println(args[0] + ": customer " + unservable
+                    + " exceeds the capacity or cannot be served within its time window");
+            System.exit(1);
+        }
+        long timeLimitMillis = Long.parseLong(args[1]) * 1000L;
+        int count = Integer.parseInt(args[2]);
+        int firstId = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        String hubAddress = args.length > 4 ? args[4] : null;
+
+        MigrationHub localHub = null;
+        MigrationChannel channel;
+        if (hubAddress == null) {
+            channel = new LocalMigrationChannel();
+        } else if (hubAddress.equals("local-hub")) {
+            localHub = new MigrationHub(0, true, inst).start();
+            channel = new SocketMigrationChannel("localhost", localHub.getPort(), inst);
+        } else {
+            String[] parts = hubAddress.split(":");
+            channel = new SocketMigrationChannel(parts[0], Integer.parseInt(parts[1]), inst);
+        }
+
+        List<Island> islands = defaultIslands(count, firstId);
+        for (int k = 0; k < islands.size(); k++) {
+            System.out.println("Island " + (firstId + k) + ": " + islands.get(k));
+        }
+
+        try {
+            CVRPSolution best = new IslandModel(islands).solve(inst, timeLimitMillis, 1000L, channel, firstId);
+            System.out.println("Island model solution: " + best.getTotalDistance(inst)
+                    + " (global best " + channel.bestCost() + ")");
+        } finally {
+            channel.close();
+            if (localHub != null) {
+                localHub.stop();
+            }
+        }
+    }
+}
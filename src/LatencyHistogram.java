@@ -0,0 +1,139 @@
+package src;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size latency histogram with log-linear buckets, in the style of HdrHistogram.
+ *
+ * Values below 64 get a bucket each; above that every power of two is split into 32 equal
+ * buckets, so a recorded value is known to within about 3% whatever its magnitude. Recording
+ * is lock-free (one atomic increment plus count, total and max updates) and safe from any
+ * number of threads; all memory is allocated up front.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    /** magnitudes 6..62 of positive longs, 32 buckets each, after the linear range */
+    private static final int BUCKETS = LINEAR + (63 - 6) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value.
+     * @param value value to record, e.g. a latency in nanoseconds (negative values count as 0)
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Records the time elapsed since a System.nanoTime() reading.
+     * @param startNanos start time
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the number of recorded values.
+     * @return count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     * @return maximum, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     * @return mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (double) total.get() / n;
+    }
+
+    /**
+     * Gets the value below which the given percentage of the recorded values falls.
+     * The result is the upper end of the bucket holding that value, capped at the maximum.
+     * @param percentile percentile in [0, 100]
+     * @return value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) {
+                return Math.min(upperBound(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded values. Not atomic with respect to concurrent recording.
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Formats count, mean, percentiles and maximum of a nanosecond histogram in microseconds.
+     * @param name label of the line
+     * @return one summary line
+     */
+    public String summary(String name) {
+        return String.format("%-15s n %9d  mean %10.1f  p50 %10.1f  p90 %10.1f  p99 %10.1f  p99.9 %10.1f  max %10.1f us",
+                name, getCount(), getMean() / 1e3, getValueAtPercentile(50) / 1e3, getValueAtPercentile(90) / 1e3,
+                getValueAtPercentile(99) / 1e3, getValueAtPercentile(99.9) / 1e3, getMax() / 1e3);
+    }
+
+    private static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BITS;
+        return LINEAR + (magnitude - 6) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int magnitude = (bucket - LINEAR) / SUB_BUCKETS + 6;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        int shift = magnitude - SUB_BITS;
+        long lower = (long) (SUB_BUCKETS + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
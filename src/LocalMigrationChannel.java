@@ -0,0 +1,41 @@
+package src;
+
+/**
+ * Shared-memory migration channel for islands running as threads of the same process.
+ */
+public class LocalMigrationChannel implements MigrationChannel {
+    private CVRPSolution best;
+    private int bestCost = Integer.MAX_VALUE;
+    private int bestIsland = -1;
+
+    @Override
+    public synchronized void publish(int island, CVRPSolution sol, int cost) {
+        if (cost < bestCost) {
+            best = sol.copy();
+            bestCost = cost;
+            bestIsland = island;
+        }
+    }
+
+    @Override
+    public synchronized int bestCost() {
+        return bestCost;
+    }
+
+    @Override
+    public synchronized CVRPSolution fetchBest(CVRPInstance instance) {
+        return best == null ? null : best.copy();
+    }
+
+    /**
+     * Gets the island that published the current best solution.
+     * @return island id, or -1 if nothing was published
+     */
+    public synchronized int getBestIsland() {
+        return bestIsland;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,321 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * Cheap lower bounds for a CVRP instance, used to measure the optimality gap of a solution.
+ *
+ * Vehicle bound: the bin-packing bound max(ceil(total demand / Q), #customers with demand > Q/2).
+ *
+ * Radial bound: a route with load at most Q costs at least twice the distance to its farthest
+ * customer, hence at least the sum over its customers of 2 * d(depot, i) * demand(i) / Q.
+ *
+ * Distance bound: a Lagrangian K-tree relaxation. Removing the depot edges from a solution with
+ * K routes leaves a forest of K paths over the customers, so its cost is at least the K cheapest
+ * depot connections (each counted twice) plus the minimum spanning forest with K components.
+ * The degree-2 constraint of every customer is dualized with multipliers that are improved by
+ * subgradient optimization; every evaluation yields a valid bound.
+ * The reported bound is the maximum of the radial and the distance bound.
+ *
+ * The subgradient loop can run on a background thread while the search is running
+ * (startAsync); the best bound found so far is always available through getBound.
+ */
+public class LowerBound {
+    private static final int DEPOT = 1;
+
+    private final CVRPInstance instance;
+    private final int vehicleBound;
+    private final int radialBound;
+    private volatile int bound;
+    private volatile int upperBound = Integer.MAX_VALUE;
+    private volatile boolean running = false;
+    private Thread worker;
+
+    public LowerBound(CVRPInstance instance) {
+        this.instance = instance;
+        this.vehicleBound = computeVehicleBound(instance);
+        this.radialBound = computeRadialBound(instance);
+        this.bound = Math.max(radialBound, evaluate(new double[instance.getNodes() + 1], null));
+    }
+
+    /**
+     * Computes the bin-packing lower bound on the number of vehicles.
+     * @param instance CVRP instance
+     * @return minimum number of routes of any feasible solution
+     */
+    public static int computeVehicleBound(CVRPInstance instance) {
+        int n = instance.getNodes();
+        int Q = instance.getCapacity();
+        long totalDemand = 0;
+        int large = 0;
+        for (int i = 2; i <= n; i++) {
+            int d = instance.getDemand(i);
+            totalDemand += d;
+            if (2 * d > Q) {
+                large++;
+            }
+        }
+        int byDemand = (int) ((totalDemand + Q - 1) / Q);
+        return Math.max(1, Math.max(byDemand, large));
+    }
+
+    /**
+     * Computes the radial (capacity-weighted depot distance) lower bound on the total distance.
+     * @param instance CVRP instance
+     * @return radial bound
+     */
+    public static int computeRadialBound(CVRPInstance instance) {
+        int n = instance.getNodes();
+        long weighted = 0;
+        for (int i = 2; i <= n; i++) {
+            weighted += 2L * instance.getDistance(DEPOT, i) * instance.getDemand(i);
+        }
+        return (int) ((weighted + instance.getCapacity() - 1) / instance.getCapacity());
+    }
+
+    /**
+     * Gets the bin-packing bound on the number of vehicles.
+     * @return vehicle bound
+     */
+    public int getVehicleBound() {
+        return vehicleBound;
+    }
+
+    /**
+     * Gets the best distance bound found so far.
+     * @return lower bound on the total distance
+     */
+    public int getBound() {
+        return bound;
+    }
+
+    /**
+     * Reports the cost of a known solution, used to steer the subgradient step size.
+     * @param cost total distance of a feasible solution
+     */
+    public void offerUpperBound(int cost) {
+        if (cost < upperBound) {
+            upperBound = cost;
+        }
+    }
+
+    /**
+     * Computes the relative gap between a solution cost and the current bound.
+     * @param cost total distance of a feasible solution
+     * @return (cost - bound) / cost
+     */
+    public double gap(int cost) {
+        if (cost <= 0) {
+            return 0.0;
+        }
+        return Math.max(0.0, (double) (cost - bound) / cost);
+    }
+
+    /**
+     * Runs subgradient optimization on the calling thread.
+     * @param maxIterations maximum number of subgradient iterations
+     * @return the best Lagrangian distance bound found
+     */
+    public int improve(int maxIterations) {
+        int n = instance.getNodes();
+        double[] pi = new double[n + 1];
+        int[] degree = new int[n + 1];
+
+        double lambda = 2.0;
+        int sinceImprovement = 0;
+        int best = evaluate(pi, degree);
+
+        for (int it = 0; it < maxIterations && !Thread.currentThread().isInterrupted(); it++) {
+            double value = evaluateExact(pi, degree);
+            if (value > best) {
+                best = (int) Math.ceil(value - 1e-6);
+                if (best > bound) {
+                    bound = best;
+                }
+                sinceImprovement = 0;
+            } else if (++sinceImprovement >= 20) {
+                lambda /= 2.0;
+                sinceImprovement = 0;
+                if (lambda < 1e-4) {
+                    break;
+                }
+            }
+
+            double norm = 0.0;
+            for (int i = 2; i <= n; i++) {
+                int g = degree[i] - 2;
+                norm += g * g;
+            }
+            if (norm == 0.0) {
+                break; // relaxation is a feasible tour structure: bound is tight
+            }
+
+            int ub = upperBound;
+            double target = ub == Integer.MAX_VALUE ? value * 1.05 + 1 : ub;
+            double step = lambda * Math.max(target - value, 1.0) / norm;
+            for (int i = 2; i <= n; i++) {
+                pi[i] += step * (degree[i] - 2);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Starts the subgradient optimization on a background thread.
+     * @param maxIterations maximum number of subgradient iterations
+     */
+    public synchronized void startAsync(int maxIterations) {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(() -> {
+            try {
+                improve(maxIterations);
+            } finally {
+                running = false;
+            }
+        }, "lower-bound");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the background optimization, if running, and waits for it to end (at most one
+     * subgradient iteration), so that startAsync can be called again right away.
+     */
+    public synchronized void stop() {
+        if (worker == null) {
+            return;
+        }
+        worker.interrupt();
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        worker = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether the background optimization is still running.
+     * @return true if running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    private int evaluate(double[] pi, int[] degree) {
+        return (int) Math.ceil(evaluateExact(pi, degree == null ? new int[pi.length] : degree) - 1e-6);
+    }
+
+    /**
+     * Evaluates the Lagrangian K-tree relaxation for the given multipliers.
+     * @param pi multiplier per customer
+     * @param degree output: degree of every customer in the relaxed solution
+     * @return Lagrangian bound value
+     */
+    private double evaluateExact(double[] pi, int[] degree) {
+        int n = instance.getNodes();
+        int m = n - 1;
+        Arrays.fill(degree, 0);
+        if (m <= 0) {
+            return 0.0;
+        }
+
+        // minimum spanning tree over the customers (Prim, O(m^2))
+        double[] key = new double[n + 1];
+        int[] parent = new int[n + 1];
+        boolean[] inTree = new boolean[n + 1];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        key[2] = 0.0;
+        parent[2] = -1;
+
+        double[] edgeWeight = new double[m - 1];
+        int[] edgeFrom = new int[m - 1];
+        int[] edgeTo = new int[m - 1];
+        int edges = 0;
+
+        for (int k = 0; k < m; k++) {
+            int u = -1;
+            for (int i = 2; i <= n; i++) {
+                if (!inTree[i] && (u == -1 || key[i] < key[u])) {
+                    u = i;
+                }
+            }
+            inTree[u] = true;
+            if (parent[u] > 0) {
+                edgeWeight[edges] = key[u];
+                edgeFrom[edges] = parent[u];
+                edgeTo[edges] = u;
+                edges++;
+            }
+            for (int v = 2; v <= n; v++) {
+                if (!inTree[v]) {
+                    double w = instance.getDistance(u, v) + pi[u] + pi[v];
+                    if (w < key[v]) {
+                        key[v] = w;
+                        parent[v] = u;
+                    }
+                }
+            }
+        }
+
+        // tree edges sorted by decreasing weight: the first K-1 are dropped to get K components
+        Integer[] byWeight = new Integer[edges];
+        for (int e = 0; e < edges; e++) {
+            byWeight[e] = e;
+        }
+        Arrays.sort(byWeight, (a, b) -> Double.compare(edgeWeight[b], edgeWeight[a]));
+
+        // depot connections sorted by increasing weight: the K cheapest are used twice
+        Integer[] byDepot = new Integer[m];
+        double[] depotWeight = new double[n + 1];
+        for (int i = 2; i <= n; i++) {
+            byDepot[i - 2] = i;
+            depotWeight[i] = instance.getDistance(DEPOT, i) + pi[i];
+        }
+        Arrays.sort(byDepot, (a, b) -> Double.compare(depotWeight[a], depotWeight[b]));
+
+        double treeCost = 0.0;
+        for (int e = 0; e < edges; e++) {
+            treeCost += edgeWeight[e];
+        }
+
+        int K = Math.min(vehicleBound, m);
+        double value = treeCost;
+        for (int k = 0; k < K; k++) {
+            value += 2 * depotWeight[byDepot[k]];
+        }
+        for (int k = 0; k < K - 1; k++) {
+            value -= edgeWeight[byWeight[k]];
+        }
+        // more routes than the vehicle bound only help while another depot pair is
+        // cheaper than the next tree edge it replaces
+        while (K < m && 2 * depotWeight[byDepot[K]] - edgeWeight[byWeight[K - 1]] < 0) {
+            value += 2 * depotWeight[byDepot[K]] - edgeWeight[byWeight[K - 1]];
+            K++;
+        }
+
+        for (int k = K - 1; k < edges; k++) {
+            int e = byWeight[k];
+            degree[edgeFrom[e]]++;
+            degree[edgeTo[e]]++;
+        }
+        for (int k = 0; k < K; k++) {
+            degree[byDepot[k]] += 2;
+        }
+
+        double piSum = 0.0;
+        for (int i = 2; i <= n; i++) {
+            piSum += pi[i];
+        }
+        return value - 2 * piSum;
+    }
+}
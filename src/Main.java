@@ -1,31 +1,124 @@
 package src;
 
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
 /**
- * Main class to run a greedy constructive heuristic, a VND algorithm and 
+ * Main class to run a greedy constructive heuristic, a VND algorithm and
  * a GRASP heuristic on multiple CVRP instances.
+ * All settings come from SolverConfig (command-line flags and an optional properties file),
+ * e.g. --instances=instances/instance1.txt,instances/instance2.txt --time-limit=60 --threads=4.
+ * With --warm-start GRASP starts from the elite set (or the solution) of the previous run of
+ * each instance; the elite set of every run is saved next to its solution.
+ * Instances with time windows or several depots are built with InsertionHeuristic instead of
+ * the savings heuristic (see GRASP). Instances with a customer that no route can serve (see
+ * CVRPInstance.findUnservableCustomer) are skipped; the exit status is then 1.
  */
 public class Main {
     public static void main(String[] args) throws Exception{
-        double alpha = 0.3;
-        long timeLimitMillis = 10 * 60 * 1000L;
-        GRASP grasp = new GRASP(alpha);
+        SolverConfig config;
+        try {
+            config = SolverConfig.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: Main [--config=file] [--key=value ...], see SolverConfig for the keys");
+            System.exit(2);
+            return;
+        }
+        System.out.println("Configuration: " + config);
+        GRASP grasp = config.createGRASP();
+        boolean rejected = false;
+
+        for (String path : config.getInstances()) {
+            CVRPInstance inst = InstanceReader.read(path);
+            int unservable = inst.findUnservableCustomer();
+            if (unservable != -1) {
+                System.err.println("Skipping " + path + ": customer " + unservable
+                        + " exceeds the capacity or cannot be served within its time window");
+                rejected = true;
+                continue;
+            }
+
+            CVRPSolution greedySol = inst.isPureCVRP() ? new SavingsHeuristic().construct(inst)
+                    : new InsertionHeuristic(0).construct(inst);
+            System.out.println("Greedy solution " + path + ": " + greedySol.getTotalDistance(inst));
 
-        for (int i = 1; i <= 1; i++) {
-            CVRPInstance inst = InstanceReader.read("instances/instance" + i + ".txt");
+            CVRPSolution VNDSol = config.createVND().solve(greedySol, inst);
+            System.out.println("VND solution " + path + ": " + VNDSol.getTotalDistance(inst));
 
-            CVRPSolution greedySol = new SavingsHeuristic().construct(inst);
-            System.out.println("Greedy solution instance "+ i + ": " + greedySol.getTotalDistance(inst));
+            String out = config.solutionPath(path);
+            String eliteOut = config.elitePath(path);
+            if (config.isWarmStart()) {
+                List<CVRPSolution> starts = new ArrayList<>();
+                if (Files.exists(Paths.get(eliteOut))) {
+                    starts.addAll(SolutionReader.readAll(eliteOut, inst));
+                } else if (Files.exists(Paths.get(out)) && config.getOutputFormat() == SolutionStreamWriter.Format.TEXT) {
+                    starts.add(SolutionReader.read(out, inst));
+                } else if (Files.exists(Paths.get(out))) {
+                    starts.add(BinaryFormat.readSolution(out, inst));
+                }
+                System.out.println("Warm start " + path + " from " + starts.size() + " solution(s)");
+                grasp.setWarmStart(starts);
+            }
 
-            CVRPSolution VNDSol = new VND().solve(greedySol, inst);
-            System.out.println("VND solution instance "+ i + ": " + VNDSol.getTotalDistance(inst));
-            
-            CVRPSolution graspSol = grasp.solve(inst, timeLimitMillis);
-            System.out.println("GRASP solution instance "+ i + ": " + graspSol.getTotalDistance(inst));
+            long start = System.nanoTime();
+            CVRPSolution graspSol = grasp.solve(inst, config.getTimeLimitMillis());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println("GRASP solution " + path + ": " + graspSol.getTotalDistance(inst));
+            if (config.getRouteCache() != null) {
+                System.out.println(config.getRouteCache().summary());
+            }
+            if (grasp.getRoutePool() != null) {
+                System.out.println(grasp.getRoutePool().summary());
+            }
 
-            String out = "solutions/solution_" + i + ".txt";
-            SolutionWriter.writeSolution(out, graspSol);
+            Files.createDirectories(Paths.get(out).toAbsolutePath().getParent());
+            if (config.getOutputFormat() == SolutionStreamWriter.Format.BINARY) {
+                BinaryFormat.writeSolution(out, graspSol);
+            } else {
+                SolutionWriter.writeSolution(out, graspSol);
+            }
+            try (SolutionStreamWriter elite = SolutionStreamWriter.open(eliteOut, false, SolutionStreamWriter.Format.TEXT, false)) {
+                elite.writeAll(grasp.getElite());
+            }
+            if (config.getMetricsFile() != null) {
+                writeMetrics(config, path, inst, graspSol, seconds, grasp.getIterations());
+            }
 
             System.out.println("Generated " + out);
         }
+        if (rejected) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Appends one CSV line with the result of an instance to the metrics file, writing the
+     * header first if the file is new.
+     */
+    private static void writeMetrics(SolverConfig config, String path, CVRPInstance inst, CVRPSolution sol,
+                                     double seconds, long iterations) throws IOException {
+        boolean header = !Files.exists(Paths.get(config.getMetricsFile()));
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(config.getMetricsFile(), true))) {
+            if (header) {
+                bw.write("instance,nodes,cost,routes,seconds,iterations,iterations_per_second,"
+                        + "constructor,alpha,operators,adaptive,acceptance,threads,seed");
+                bw.newLine();
+            }
+            bw.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.3f,%d,%.2f,%s,%s,%s,%s,%s,%d,%d",
+                    path, inst.getNodes(), sol.getTotalDistance(inst), sol.getNumberOfRoutes(), seconds, iterations,
+                    iterations / Math.max(seconds, 1e-9),
+                    inst.isPureCVRP() ? config.getConstructor().name().toLowerCase() : "insertion", config.getAlpha(),
+                    config.getOperators().stream().map(Enum::name).collect(Collectors.joining("|")),
+                    config.isAdaptive(), config.getAcceptance().name().toLowerCase(), config.getThreads(), config.getSeed()));
+            bw.newLine();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Channel through which the islands of an island-model GRASP exchange their best solutions.
+ */
+public interface MigrationChannel extends Closeable {
+    /**
+     * Publishes an island's best solution. The channel keeps it if it beats the best known one.
+     * @param island id of the publishing island
+     * @param sol solution to publish (not modified by the channel)
+     * @param cost total distance of the solution
+     * @throws IOException if the channel cannot be reached
+     */
+    void publish(int island, CVRPSolution sol, int cost) throws IOException;
+
+    /**
+     * Gets the cost of the best solution published so far.
+     * @return best cost, or Integer.MAX_VALUE if nothing was published
+     * @throws IOException if the channel cannot be reached
+     */
+    int bestCost() throws IOException;
+
+    /**
+     * Gets a copy of the best solution published so far.
+     * @param instance CVRP instance the solution belongs to
+     * @return the best solution, or null if nothing was published
+     * @throws IOException if the channel cannot be reached
+     */
+    CVRPSolution fetchBest(CVRPInstance instance) throws IOException;
+}
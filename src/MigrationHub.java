@@ -0,0 +1,208 @@
+package src;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Small TCP server that keeps the best solution published by remote islands
+ * (see SocketMigrationChannel). Solutions are stored as BinaryFormat frames, so one hub can
+ * serve islands on several machines without decoding them.
+ *
+ * A hub serves one instance. A connection must first identify the instance by its
+ * fingerprint; it is closed if the fingerprint differs, and also if a published frame is
+ * longer than any solution of the instance can be.
+ *
+ * Protocol, per request (all ints and longs big-endian):
+ *   'H' fingerprint               ->  1 (or the connection is closed)
+ *   'P' island cost length frame  ->  best cost
+ *   'C'                           ->  best cost
+ *   'F'                           ->  best cost, length, frame (length 0 if none)
+ */
+public class MigrationHub implements Runnable {
+    static final byte PUBLISH = 'P';
+    static final byte COST = 'C';
+    static final byte FETCH = 'F';
+    static final byte HELLO = 'H';
+
+    private final ServerSocket server;
+    private final long fingerprint;
+    private final int maxFrameBytes;
+    private byte[] bestFrame = new byte[0];
+    private int bestCost = Integer.MAX_VALUE;
+
+    /**
+     * Constructor
+     * @param port port to listen on (0 for any free port)
+     * @param localOnly true to accept only connections from this machine
+     * @param instance instance whose solutions the hub exchanges
+     * @throws IOException if the port cannot be bound
+     */
+    public MigrationHub(int port, boolean localOnly, CVRPInstance instance) throws IOException {
+        this.fingerprint = fingerprint(instance);
+        this.maxFrameBytes = BinaryFormat.maxSolutionFrameBytes(instance.getNodes());
+        this.server = localOnly
+                ? new ServerSocket(port, 50, InetAddress.getLoopbackAddress())
+                : new ServerSocket(port);
+    }
+
+    /**
+     * Gets the port the hub listens on.
+     * @return port number
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     * @return this hub
+     */
+    public MigrationHub start() {
+        Thread t = new Thread(this, "migration-hub");
+        t.setDaemon(true);
+        t.start();
+        return this;
+    }
+
+    /**
+     * Stops the hub.
+     * @throws IOException if the server socket cannot be closed
+     */
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    @Override
+    public void run() {
+        while (!server.isClosed()) {
+            try {
+                Socket client = server.accept();
+                Thread t = new Thread(() -> serve(client), "migration-client");
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Migration hub: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket s = client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            if (in.readByte() != HELLO || in.readLong() != fingerprint) {
+                throw new IOException("Connection from " + s.getRemoteSocketAddress() + " is not for this instance");
+            }
+            out.writeInt(1);
+            out.flush();
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (op == PUBLISH) {
+                    int island = in.readInt();
+                    int cost = in.readInt();
+                    int length = in.readInt();
+                    if (length < 0 || length > maxFrameBytes) {
+                        throw new IOException("Frame of " + length + " bytes from " + s.getRemoteSocketAddress()
+                                + " is out of range");
+                    }
+                    byte[] frame = new byte[length];
+                    in.readFully(frame);
+                    out.writeInt(offer(island, cost, frame));
+                } else if (op == COST) {
+                    out.writeInt(currentCost());
+                } else if (op == FETCH) {
+                    byte[] frame;
+                    int cost;
+                    synchronized (this) {
+                        frame = bestFrame;
+                        cost = bestCost;
+                    }
+                    out.writeInt(cost);
+                    out.writeInt(frame.length);
+                    out.write(frame);
+                } else {
+                    throw new IOException("Unknown request " + op);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Migration hub client: " + e.getMessage());
+        }
+    }
+
+    private synchronized int offer(int island, int cost, byte[] frame) {
+        if (cost < bestCost) {
+            bestCost = cost;
+            bestFrame = frame;
+            System.out.println("Hub: new best " + cost + " from island " + island);
+        }
+        return bestCost;
+    }
+
+    private synchronized int currentCost() {
+        return bestCost;
+    }
+
+    /**
+     * Computes a fingerprint of an instance from its size, capacity, coordinates and demands,
+     * and the depots and time windows if it has any, so that islands of different instances
+     * cannot share a hub by mistake.
+     * @param instance CVRP instance
+     * @return fingerprint
+     */
+    static long fingerprint(CVRPInstance instance) {
+        long h = RandomStreams.mix64(instance.getNodes()) + instance.getCapacity();
+        for (int i = 1; i <= instance.getNodes(); i++) {
+            h = RandomStreams.mix64(h + instance.getX(i));
+            h = RandomStreams.mix64(h + instance.getY(i));
+            h = RandomStreams.mix64(h + instance.getDemand(i));
+        }
+        if (!instance.isPureCVRP()) {
+            TWInstance tw = (TWInstance) instance;
+            for (int d : tw.getDepots()) {
+                h = RandomStreams.mix64(h + d);
+            }
+            for (int i = 1; i <= instance.getNodes(); i++) {
+                h = RandomStreams.mix64(h + tw.getReady(i));
+                h = RandomStreams.mix64(h + tw.getDue(i));
+                h = RandomStreams.mix64(h + tw.getService(i));
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Runs a stand-alone hub. It only accepts connections from this machine unless --remote is
+     * given, since the islands of other machines are trusted to publish valid solutions.
+     * Usage: MigrationHub instance [port] [--remote]
+     * @param args command line arguments
+     * @throws IOException if the instance cannot be read or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: MigrationHub <instance> [port] [--remote]");
+            return;
+        }
+        CVRPInstance inst = InstanceReader.read(args[0]);
+        boolean remote = Arrays.asList(args).contains("--remote");
+        int port = args.length > 1 && !args[1].equals("--remote") ? Integer.parseInt(args[1]) : 4711;
+        MigrationHub hub = new MigrationHub(port, !remote, inst);
+        System.out.println("Migration hub listening on " + (remote ? "all interfaces" : "loopback") + ", port " + hub.getPort());
+        hub.run();
+    }
+}
@@ -0,0 +1,21 @@
+package src;
+
+/**
+ * Receives the changes applied by neighbourhood moves, so that solution state can be
+ * tracked (or checked) incrementally instead of being recomputed after every move.
+ */
+public interface MoveListener {
+    /**
+     * Called for every route replaced by a move, before moveApplied.
+     * @param index position of the route in the solution's route list
+     * @param before route before the move
+     * @param after route after the move
+     */
+    void routeChanged(int index, Route before, Route after);
+
+    /**
+     * Called once a move has been fully applied.
+     * @param delta change in total distance claimed by the move
+     */
+    void moveApplied(int delta);
+}
@@ -1,12 +1,226 @@
 package src;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class implements various neighborhood structures for CVRP solutions.
  */
 public class NeighbourhoodReal {
+    private MoveListener listener;
+    private RouteOptimizer optimizer;
+    private long appliedDelta = 0;
+    private boolean firstImprovement = false;
+    private boolean sectorPruning = true;
+    private RouteCache routeCache;
+    /** routes already looked up in the route cache: true if the cache has them at their best */
+    private final Map<Route, Boolean> cacheChecked = new IdentityHashMap<>();
+
+    /**
+     * Sets a listener that is notified of every applied move.
+     * @param listener move listener, or null to disable notifications
+     */
+    public void setMoveListener(MoveListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the acceptance strategy of the operators (the TSP optimizer always runs to a local optimum).
+     * @param firstImprovement true to apply the first improving move found, false to scan the
+     *                         whole neighbourhood and apply the best one
+     */
+    public void setFirstImprovement(boolean firstImprovement) {
+        this.firstImprovement = firstImprovement;
+    }
+
+    /**
+     * Restricts the inter-route operators to route pairs whose polar sectors around the depot
+     * overlap or are adjacent (see nearRoutes). Routes on opposite sides of the depot can hardly
+     * exchange customers with a gain, and most pairs of a large solution are such pairs.
+     * @param sectorPruning true (the default) to skip the other pairs, false to search all pairs
+     */
+    public void setSectorPruning(boolean sectorPruning) {
+        this.sectorPruning = sectorPruning;
+    }
+
+    /**
+     * Sets a cache of the best known sequences of customer sets. The intra-route operators then
+     * take over a shorter cached sequence of a route as their move and skip routes that the cache
+     * cannot improve. The cache holds tours from node 1 and is not used for instances with time
+     * windows or several depots.
+     * @param routeCache route cache, or null to disable it
+     */
+    public void setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        cacheChecked.clear();
+    }
+
+    /**
+     * Forgets which routes have been looked up in the route cache, e.g. when a new solution is
+     * improved, so that routes of earlier solutions are not kept reachable.
+     */
+    public void clearCacheChecks() {
+        cacheChecked.clear();
+    }
+
+    /**
+     * Gets the sum of the distance changes of all moves applied so far. The difference
+     * between two calls is the improvement achieved in between (negative if improved).
+     * @return total applied delta
+     */
+    public long getAppliedDelta() {
+        return appliedDelta;
+    }
+
+    /**
+     * Replaces a route and notifies the listener, if any.
+     * @param routes list of routes in the solution
+     * @param index position of the route to replace
+     * @param newRoute the new route
+     */
+    private void replaceRoute(List<Route> routes, int index, Route newRoute) {
+        Route old = routes.set(index, newRoute);
+        if (listener != null) {
+            listener.routeChanged(index, old, newRoute);
+        }
+    }
+
+    /**
+     * Notifies the listener, if any, that a move has been fully applied.
+     * @param delta change in total distance
+     */
+    private void moveApplied(int delta) {
+        appliedDelta += delta;
+        if (listener != null) {
+            listener.moveApplied(delta);
+        }
+    }
+
+    /**
+     * Looks up the routes not seen before in the route cache and replaces those with a shorter
+     * cached sequence.
+     * @param routes list of routes in the solution
+     * @param instance CVRP instance
+     * @return true if a route was replaced
+     */
+    private boolean applyCachedSequences(List<Route> routes, CVRPInstance instance) {
+        if (routeCache == null || !instance.isPureCVRP()) {
+            return false;
+        }
+        boolean improved = false;
+        for (int index = 0; index < routes.size(); index++) {
+            Route route = routes.get(index);
+            if (cacheChecked.containsKey(route)) {
+                continue;
+            }
+            RouteCache.Entry cached = routeCache.lookup(route.getCustomers(), instance);
+            int distance = cached == null ? 0 : route.getDistance(instance);
+            if (cached == null || cached.getDistance() > distance) {
+                cacheChecked.put(route, false);
+                continue;
+            }
+            if (cached.getDistance() < distance) {
+                route = new Route(cached.getCustomers(), instance, route.getDepot());
+                replaceRoute(routes, index, route);
+                moveApplied(cached.getDistance() - distance);
+                improved = true;
+            }
+            cacheChecked.put(route, true);
+        }
+        return improved;
+    }
+
+    /**
+     * Checks whether the route cache holds a sequence of a route that is at least as short, so
+     * that the intra-route operators can skip it.
+     */
+    private boolean isCachedOptimal(Route route) {
+        return routeCache != null && cacheChecked.getOrDefault(route, false);
+    }
+
+    /**
+     * Checks the changed customer sequence of a route against capacity and time windows, for
+     * moves whose delta was priced on distances alone. Plain CVRP sequences are not checked:
+     * the callers keep the load within the capacity.
+     * @param customers new customer sequence
+     * @param depot depot of the route
+     * @param instance CVRP instance
+     * @return true if the sequence is feasible
+     */
+    private static boolean isFeasibleSequence(List<Integer> customers, int depot, CVRPInstance instance) {
+        return instance.isPureCVRP() || RouteEvaluator.of(instance, customers, depot).isFeasible();
+    }
+
+    /**
+     * Builds the customer sequence of a route after the customer at position remove is taken
+     * out and customer is inserted at position insert of the shortened sequence.
+     */
+    private static List<Integer> exchanged(List<Integer> customers, int remove, int insert, int customer) {
+        List<Integer> result = new ArrayList<>(customers);
+        result.remove(remove);
+        result.add(insert, customer);
+        return result;
+    }
+
+    /**
+     * Creates the evaluators of all routes, which check and price single-customer changes in O(1):
+     * capacity only for plain CVRP instances, also time windows otherwise (see RouteEvaluator.of).
+     * @param routes list of routes in the solution
+     * @param instance CVRP instance
+     * @return evaluator of every route
+     */
+    private static RouteEvaluator[] evaluators(List<Route> routes, CVRPInstance instance) {
+        RouteEvaluator[] evaluators = new RouteEvaluator[routes.size()];
+        for (int r = 0; r < routes.size(); r++) {
+            evaluators[r] = RouteEvaluator.of(instance, routes.get(r).getCustomers(), routes.get(r).getDepot());
+        }
+        return evaluators;
+    }
+
+    /**
+     * Finds the route pairs the inter-route operators consider: pairs whose sectors overlap, and
+     * pairs that are neighbours in the order of the routes around the depot, so that a customer
+     * between two disjoint sectors can still move across. Pairs with an empty route are kept.
+     * Sectors are taken around node 1, so instances with several depots are not pruned.
+     * @param routes list of routes in the solution
+     * @param instance CVRP instance
+     * @return near[a][b] true if routes a and b are to be searched, or null if pruning is off
+     */
+    private boolean[][] nearRoutes(List<Route> routes, CVRPInstance instance) {
+        if (!sectorPruning || instance.getDepots().length > 1) {
+            return null;
+        }
+        int count = routes.size();
+        PolarSector[] sectors = new PolarSector[count];
+        List<Integer> order = new ArrayList<>();
+        for (int r = 0; r < count; r++) {
+            sectors[r] = routes.get(r).getSector(instance);
+            if (sectors[r] != null) {
+                order.add(r);
+            }
+        }
+        boolean[][] near = new boolean[count][count];
+        for (int a = 0; a < count; a++) {
+            for (int b = a + 1; b < count; b++) {
+                if (sectors[a] == null || sectors[b] == null || sectors[a].overlaps(sectors[b])) {
+                    near[a][b] = true;
+                    near[b][a] = true;
+                }
+            }
+        }
+        order.sort((a, b) -> Integer.compare(sectors[a].getMiddle(), sectors[b].getMiddle()));
+        for (int k = 0; k < order.size(); k++) {
+            int a = order.get(k);
+            int b = order.get((k + 1) % order.size());
+            if (a != b) {
+                near[a][b] = true;
+                near[b][a] = true;
+            }
+        }
+        return near;
+    }
 
     /**
      * Tries to improve the solution by swapping two customers within the same route.
@@ -15,16 +229,20 @@ public class NeighbourhoodReal {
      * @return true if an improvement was made, false otherwise
      */
     public boolean intraRouteSwap(List<Route> routes, CVRPInstance instance) {
+        if (applyCachedSequences(routes, instance)) {
+            return true;
+        }
         int bestImprovement = 0;
         int bestIndex = -1;
         int bestI = -1;
         int bestJ = -1;
 
         // explore all routes
+        search:
         for (int index = 0; index < routes.size(); index++) {
             Route route = routes.get(index);
             List<Integer> customers = route.getCustomers();
-            if (customers.size() < 2) {
+            if (customers.size() < 2 || isCachedOptimal(route)) {
                 continue;
             }
             int distPrev = route.getDistance(instance);
@@ -38,12 +256,16 @@ public class NeighbourhoodReal {
                     customersUpdated.set(i, customersUpdated.get(j));
                     customersUpdated.set(j, temp);
 
-                    int distNew = RouteUtils.computeRouteDistance(customersUpdated, instance);
-                    if (distNew - distPrev < bestImprovement) {
+                    int distNew = RouteUtils.computeRouteDistance(customersUpdated, instance, route.getDepot());
+                    if (distNew - distPrev < bestImprovement
+                            && isFeasibleSequence(customersUpdated, route.getDepot(), instance)) {
                         bestImprovement = distNew - distPrev;
                         bestIndex = index;
                         bestI = i;
                         bestJ = j;
+                        if (firstImprovement) {
+                            break search;
+                        }
                     }
                 }
             }
@@ -58,8 +280,9 @@ public class NeighbourhoodReal {
         customers.set(bestI, customers.get(bestJ));
         customers.set(bestJ, temp);
 
-        Route newRoute = new Route(customers, instance);
-        routes.set(bestIndex, newRoute);
+        Route newRoute = new Route(customers, instance, route.getDepot());
+        replaceRoute(routes, bestIndex, newRoute);
+        moveApplied(bestImprovement);
         return true;
     }
 
@@ -70,44 +293,60 @@ public class NeighbourhoodReal {
      * @return true if an improvement was made, false otherwise
      */
     public boolean relocate(List<Route> routes, CVRPInstance instance) {
+        if (applyCachedSequences(routes, instance)) {
+            return true;
+        }
         int bestImprovement = 0;
         int bestIndex = -1;
         int bestI = -1;
         int bestJ = -1;
 
         // explore all routes
+        search:
         for (int index = 0; index < routes.size(); index++) {
             Route route = routes.get(index);
             List<Integer> customers = route.getCustomers();
-            if ( customers.size() < 2) {
+            if ( customers.size() < 2 || isCachedOptimal(route)) {
                 continue;
             }
 
-            int distPrev = route.getDistance(instance);
+            // explore all possible relocations: remove the customer once, then
+            // evaluate all insertion positions of the shortened route in one batch
+            int size = customers.size();
+            int[] tour = RouteUtils.toTour(customers, route.getDepot());
+            int[] reduced = new int[size + 1];
+            int[] insertCost = new int[size];
 
-            // explore all possible relocations
             for (int from = 0; from <  customers.size(); from++) {
+                int customer = tour[from + 1];
+                int removeDelta = instance.getDistance(tour[from], tour[from + 2])
+                        - instance.getDistance(tour[from], customer)
+                        - instance.getDistance(customer, tour[from + 2]);
+
+                System.arraycopy(tour, 0, reduced, 0, from + 1);
+                System.arraycopy(tour, from + 2, reduced, from + 1, size - from);
+                RouteUtils.insertionCosts(reduced, size - 1, customer, instance, insertCost);
+
                 for (int to = 0; to <=  customers.size(); to++) {
                     if (to == from || to == from + 1) {
                         continue;
                     }
 
-                    List<Integer> customersUpdated = new ArrayList<>(customers);
-                    int customer = customersUpdated.remove(from);
                     int adjustedTo = to;
                     if (to > from) {
                         adjustedTo--;
                     }
-                    customersUpdated.add(adjustedTo, customer);
-
-                    int newDist = RouteUtils.computeRouteDistance(customersUpdated, instance);
-                    int delta = newDist - distPrev;
+                    int delta = removeDelta + insertCost[adjustedTo];
 
-                    if (delta < bestImprovement) {
+                    if (delta < bestImprovement && (instance.isPureCVRP() || isFeasibleSequence(
+                            exchanged(customers, from, adjustedTo, customer), route.getDepot(), instance))) {
                         bestImprovement = delta;
                         bestIndex = index;
                         bestI = from;
                         bestJ = to;
+                        if (firstImprovement) {
+                            break search;
+                        }
                     }
                 }
             }
@@ -126,8 +365,9 @@ public class NeighbourhoodReal {
             adjustedTo--;
         }
         customers.add(adjustedTo, customer);
-        Route newRoute = new Route(customers, instance);
-        routes.set(bestIndex, newRoute);
+        Route newRoute = new Route(customers, instance, route.getDepot());
+        replaceRoute(routes, bestIndex, newRoute);
+        moveApplied(bestImprovement);
 
         return true;
     }
@@ -139,16 +379,20 @@ public class NeighbourhoodReal {
      * @return true if an improvement was made, false otherwise.
      */
     public boolean opt2Swap(List<Route> routes, CVRPInstance instance) {
+        if (applyCachedSequences(routes, instance)) {
+            return true;
+        }
         int bestImprovement = 0;
         int bestIndex = -1;
         int bestI = -1;
         int bestJ = -1;
 
         // explore all routes
+        search:
         for (int index = 0; index < routes.size(); index++) {
             Route route = routes.get(index);
             List<Integer> customers = route.getCustomers();
-            if (customers.size() < 2) continue;
+            if (customers.size() < 2 || isCachedOptimal(route)) continue;
 
             int distPrev = route.getDistance(instance);
 
@@ -168,13 +412,17 @@ public class NeighbourhoodReal {
                         right--;
                     }
 
-                    int distNew = RouteUtils.computeRouteDistance(customersUpdated, instance);
+                    int distNew = RouteUtils.computeRouteDistance(customersUpdated, instance, route.getDepot());
 
-                    if (distNew - distPrev < bestImprovement) {
+                    if (distNew - distPrev < bestImprovement
+                            && isFeasibleSequence(customersUpdated, route.getDepot(), instance)) {
                         bestImprovement = distNew - distPrev;
                         bestIndex = index;
                         bestI = x;
                         bestJ = z;
+                        if (firstImprovement) {
+                            break search;
+                        }
                     }
                 }
             }
@@ -196,8 +444,9 @@ public class NeighbourhoodReal {
             left++;
             right--;
         }
-        Route newRoute = new Route(customers, instance);
-        routes.set(bestIndex, newRoute);
+        Route newRoute = new Route(customers, instance, route.getDepot());
+        replaceRoute(routes, bestIndex, newRoute);
+        moveApplied(bestImprovement);
         return true;
     }
 
@@ -208,63 +457,56 @@ public class NeighbourhoodReal {
      * @return true if an improvement was made, false otherwise
      */
     public boolean interRouteRelocate(List<Route> routes, CVRPInstance instance) {
-        int capacity = instance.getCapacity();
-
         int bestDelta = 0; 
         int bestFromRoute = -1;
         int bestToRoute = -1;
         int bestPosFrom = -1;
         int bestPosTo = -1;
 
+        // O(1) removal and batched insertion costs and checks of every route
+        RouteEvaluator[] evaluators = evaluators(routes, instance);
+        int maxSize = 0;
+        for (RouteEvaluator e : evaluators) {
+            maxSize = Math.max(maxSize, e.size());
+        }
+        int[] insertCost = new int[maxSize + 1];
+        boolean[][] near = nearRoutes(routes, instance);
+
         // explore all pairs of routes
+        search:
         for (int rFrom = 0; rFrom < routes.size(); rFrom++) {
-            Route routeFrom = routes.get(rFrom);
-            List<Integer> custFrom = routeFrom.getCustomers();
+            List<Integer> custFrom = routes.get(rFrom).getCustomers();
             if (custFrom.isEmpty()) continue;
-
-            int oldDistFrom = routeFrom.getDistance(instance);
+            RouteEvaluator from = evaluators[rFrom];
 
             for (int rTo = 0; rTo < routes.size(); rTo++) {
                 if (rTo == rFrom) continue;  // inter-route only
-
-                Route routeTo = routes.get(rTo);
-                List<Integer> custTo = routeTo.getCustomers();
-
-                int oldDistTo = routeTo.getDistance(instance);
+                if (near != null && !near[rFrom][rTo]) continue;
+                RouteEvaluator to = evaluators[rTo];
 
                 // explore all customers in routeFrom
                 for (int posFrom = 0; posFrom < custFrom.size(); posFrom++) {
                     int customer = custFrom.get(posFrom);
-                    int demandCustomer = instance.getDemand(customer);
-
-                    int newDemandFrom = routeFrom.getDemand() - demandCustomer;
-                    int newDemandTo = routeTo.getDemand() + demandCustomer;
-
-                    // check capacity constraints
-                    if (newDemandFrom > capacity || newDemandTo > capacity) {
+                    if (!from.canRemove(posFrom)) {
                         continue;
                     }
+                    int removeDelta = from.removalDelta(posFrom);
 
                     // explore all possible insertion positions in routeTo
-                    for (int posTo = 0; posTo <= custTo.size(); posTo++) {
-                        List<Integer> newFrom = new ArrayList<>(custFrom);
-                        newFrom.remove(posFrom);
-
-                        List<Integer> newTo = new ArrayList<>(custTo);
-                        newTo.add(posTo, customer);
-
-                        int newDistFrom = RouteUtils.computeRouteDistance(newFrom, instance);
-                        int newDistTo = RouteUtils.computeRouteDistance(newTo, instance);
-
-                        int delta = (newDistFrom + newDistTo) - (oldDistFrom + oldDistTo);
+                    to.insertionDeltas(customer, insertCost);
+                    for (int posTo = 0; posTo <= to.size(); posTo++) {
+                        int delta = removeDelta + insertCost[posTo];
 
                         // update best improvement found so far
-                        if (delta < bestDelta) {
+                        if (delta < bestDelta && to.canInsert(customer, posTo)) {
                             bestDelta = delta;
                             bestFromRoute = rFrom;
                             bestToRoute = rTo;
                             bestPosFrom = posFrom;
                             bestPosTo = posTo;
+                            if (firstImprovement) {
+                                break search;
+                            }
                         }
                     }
                 }
@@ -285,8 +527,9 @@ public class NeighbourhoodReal {
         int customer = fromCust.remove(bestPosFrom);
         toCust.add(bestPosTo, customer);
 
-        routes.set(bestFromRoute, new Route(fromCust, instance));
-        routes.set(bestToRoute, new Route(toCust, instance));
+        replaceRoute(routes, bestFromRoute, new Route(fromCust, instance, routeFrom.getDepot()));
+        replaceRoute(routes, bestToRoute, new Route(toCust, instance, routeTo.getDepot()));
+        moveApplied(bestDelta);
 
         return true;
     }
@@ -298,63 +541,46 @@ public class NeighbourhoodReal {
      * @return true if an improvement was made, false otherwise
      */
     public boolean interRouteSwap(List<Route> routes, CVRPInstance instance) {
-    int capacity = instance.getCapacity();
-
     int bestDelta = 0;
     int bestRouteA = -1;
     int bestRouteB = -1;
     int bestPosA = -1;
     int bestPosB = -1;
+    RouteEvaluator[] evaluators = evaluators(routes, instance);
+    boolean[][] near = nearRoutes(routes, instance);
 
     // explore all pairs of routes
+    search:
     for (int rA = 0; rA < routes.size(); rA++) {
-        Route routeA = routes.get(rA);
-        List<Integer> custA = routeA.getCustomers();
+        List<Integer> custA = routes.get(rA).getCustomers();
         if (custA.isEmpty()) continue;
-
-        int distAOld = routeA.getDistance(instance);
+        RouteEvaluator evalA = evaluators[rA];
 
         for (int rB = rA + 1; rB < routes.size(); rB++) {  
-            Route routeB = routes.get(rB);
-            List<Integer> custB = routeB.getCustomers();
+            if (near != null && !near[rA][rB]) continue;
+            List<Integer> custB = routes.get(rB).getCustomers();
             if (custB.isEmpty()) continue;
-
-            int distBOld = routeB.getDistance(instance);
+            RouteEvaluator evalB = evaluators[rB];
 
             // explore all pairs of customers to swap
             for (int posA = 0; posA < custA.size(); posA++) {
                 int customerA = custA.get(posA);
-                int demandA = instance.getDemand(customerA);
 
                 for (int posB = 0; posB < custB.size(); posB++) {
                     int customerB = custB.get(posB);
-                    int demandB = instance.getDemand(customerB);
-
-                    int newLoadA = routeA.getDemand() - demandA + demandB;
-                    int newLoadB = routeB.getDemand() - demandB + demandA;
-
-                    if (newLoadA > capacity || newLoadB > capacity) {
-                        continue;
-                    }
-
-                    List<Integer> newA = new ArrayList<>(custA);
-                    List<Integer> newB = new ArrayList<>(custB);
-
-                    newA.set(posA, customerB);
-                    newB.set(posB, customerA);
 
-                    int distANew = RouteUtils.computeRouteDistance(newA, instance);
-                    int distBNew = RouteUtils.computeRouteDistance(newB, instance);
-
-                    int delta = (distANew + distBNew) - (distAOld + distBOld);
+                    int delta = evalA.replacementDelta(posA, customerB) + evalB.replacementDelta(posB, customerA);
 
                     // update best improvement found so far
-                    if (delta < bestDelta) {
+                    if (delta < bestDelta && evalA.canReplace(posA, customerB) && evalB.canReplace(posB, customerA)) {
                         bestDelta = delta;
                         bestRouteA = rA;
                         bestRouteB = rB;
                         bestPosA = posA;
                         bestPosB = posB;
+                        if (firstImprovement) {
+                            break search;
+                        }
                     }
                 }
             }
@@ -378,9 +604,236 @@ public class NeighbourhoodReal {
     custA.set(bestPosA, customerB);
     custB.set(bestPosB, customerA);
 
-    routes.set(bestRouteA, new Route(custA, instance));
-    routes.set(bestRouteB, new Route(custB, instance));
+    replaceRoute(routes, bestRouteA, new Route(custA, instance, routeA.getDepot()));
+    replaceRoute(routes, bestRouteB, new Route(custB, instance, routeB.getDepot()));
+    moveApplied(bestDelta);
 
     return true;
 }
+
+    /**
+     * Tries to improve the solution with SWAP* (Vidal, 2022): a customer u of route A and a
+     * customer v of route B are exchanged, each reinserted at its best position in the other
+     * route instead of exactly in the place of the other customer.
+     *
+     * For every route pair the three cheapest insertion positions of each customer in the other
+     * route are precomputed. Removing v only invalidates the two positions next to it, so the
+     * best position of u in B without v is either the place of v or one of u's top three: every
+     * exchange of the pair is evaluated in O(1), the pair in O(|A| |B|). With sector pruning only
+     * route pairs whose polar sectors overlap or are adjacent are considered.
+     * @param routes list of routes in the solution
+     * @param instance CVRP instance
+     * @return true if an improvement was made, false otherwise
+     */
+    public boolean swapStar(List<Route> routes, CVRPInstance instance) {
+        int capacity = instance.getCapacity();
+
+        int[][] tours = new int[routes.size()][];
+        int maxSize = 0;
+        for (int r = 0; r < routes.size(); r++) {
+            List<Integer> cust = routes.get(r).getCustomers();
+            if (!cust.isEmpty()) {
+                tours[r] = RouteUtils.toTour(cust, routes.get(r).getDepot());
+                maxSize = Math.max(maxSize, cust.size());
+            }
+        }
+        boolean[][] near = nearRoutes(routes, instance);
+        int[] insertCost = new int[maxSize + 1];
+        // top three insertions of every customer of A into B and of B into A: cost and edge index
+        int[] topCostAB = new int[3 * maxSize];
+        int[] topEdgeAB = new int[3 * maxSize];
+        int[] topCostBA = new int[3 * maxSize];
+        int[] topEdgeBA = new int[3 * maxSize];
+
+        int bestDelta = 0;
+        int bestRouteA = -1;
+        int bestRouteB = -1;
+        int bestPosA = -1;
+        int bestPosB = -1;
+        int bestInsA = -1;  // position of v in A without u
+        int bestInsB = -1;  // position of u in B without v
+
+        search:
+        for (int rA = 0; rA < routes.size(); rA++) {
+            if (tours[rA] == null) continue;
+            int[] tourA = tours[rA];
+            int sizeA = tourA.length - 2;
+            int loadA = routes.get(rA).getDemand();
+
+            for (int rB = rA + 1; rB < routes.size(); rB++) {
+                if (tours[rB] == null || (near != null && !near[rA][rB])) continue;
+                int[] tourB = tours[rB];
+                int sizeB = tourB.length - 2;
+                int loadB = routes.get(rB).getDemand();
+
+                topInsertions(tourA, tourB, instance, insertCost, topCostAB, topEdgeAB);
+                topInsertions(tourB, tourA, instance, insertCost, topCostBA, topEdgeBA);
+
+                for (int i = 0; i < sizeA; i++) {
+                    int u = tourA[i + 1];
+                    int demandU = instance.getDemand(u);
+                    int removeU = instance.getDistance(tourA[i], tourA[i + 2])
+                            - instance.getDistance(tourA[i], u) - instance.getDistance(u, tourA[i + 2]);
+
+                    for (int j = 0; j < sizeB; j++) {
+                        int v = tourB[j + 1];
+                        int demandV = instance.getDemand(v);
+                        if (loadA - demandU + demandV > capacity || loadB - demandV + demandU > capacity) {
+                            continue;
+                        }
+                        int removeV = instance.getDistance(tourB[j], tourB[j + 2])
+                                - instance.getDistance(tourB[j], v) - instance.getDistance(v, tourB[j + 2]);
+
+                        // u into B without v: in the place of v, or its best position not next to v
+                        int insU = instance.getDistance(tourB[j], u) + instance.getDistance(u, tourB[j + 2])
+                                - instance.getDistance(tourB[j], tourB[j + 2]);
+                        int posU = j;
+                        for (int k = 3 * i; k < 3 * i + 3; k++) {
+                            int edge = topEdgeAB[k];
+                            if (edge < 0 || edge == j || edge == j + 1) continue;
+                            if (topCostAB[k] < insU) {
+                                insU = topCostAB[k];
+                                posU = edge < j ? edge : edge - 1;
+                            }
+                            break;
+                        }
+
+                        // v into A without u
+                        int insV = instance.getDistance(tourA[i], v) + instance.getDistance(v, tourA[i + 2])
+                                - instance.getDistance(tourA[i], tourA[i + 2]);
+                        int posV = i;
+                        for (int k = 3 * j; k < 3 * j + 3; k++) {
+                            int edge = topEdgeBA[k];
+                            if (edge < 0 || edge == i || edge == i + 1) continue;
+                            if (topCostBA[k] < insV) {
+                                insV = topCostBA[k];
+                                posV = edge < i ? edge : edge - 1;
+                            }
+                            break;
+                        }
+
+                        int delta = removeU + removeV + insU + insV;
+
+                        // update best improvement found so far, time windows checked last
+                        if (delta < bestDelta && (instance.isPureCVRP()
+                                || isFeasibleSequence(exchanged(routes.get(rA).getCustomers(), i, posV, v),
+                                        tourA[0], instance)
+                                && isFeasibleSequence(exchanged(routes.get(rB).getCustomers(), j, posU, u),
+                                        tourB[0], instance))) {
+                            bestDelta = delta;
+                            bestRouteA = rA;
+                            bestRouteB = rB;
+                            bestPosA = i;
+                            bestPosB = j;
+                            bestInsA = posV;
+                            bestInsB = posU;
+                            if (firstImprovement) {
+                                break search;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (bestDelta >= 0) {
+            return false;
+        }
+
+        // apply the best exchange found
+        List<Integer> custA = new ArrayList<>(routes.get(bestRouteA).getCustomers());
+        List<Integer> custB = new ArrayList<>(routes.get(bestRouteB).getCustomers());
+
+        int u = custA.remove(bestPosA);
+        int v = custB.remove(bestPosB);
+        custA.add(bestInsA, v);
+        custB.add(bestInsB, u);
+
+        replaceRoute(routes, bestRouteA, new Route(custA, instance, routes.get(bestRouteA).getDepot()));
+        replaceRoute(routes, bestRouteB, new Route(custB, instance, routes.get(bestRouteB).getDepot()));
+        moveApplied(bestDelta);
+
+        return true;
+    }
+
+    /**
+     * Finds the three cheapest insertion positions of every customer of one tour in another.
+     * Entries are sorted by cost; unused entries (tours with fewer than three edges) have edge -1.
+     * @param from tour whose customers are inserted, see RouteUtils.toTour
+     * @param to tour they are inserted into
+     * @param instance CVRP instance
+     * @param insertCost scratch array of length at least the size of to + 1
+     * @param topCost output: insertion costs, three per customer of from
+     * @param topEdge output: edge index p of to (between to[p] and to[p + 1]), three per customer
+     */
+    private static void topInsertions(int[] from, int[] to, CVRPInstance instance, int[] insertCost,
+                                      int[] topCost, int[] topEdge) {
+        int sizeTo = to.length - 2;
+        for (int i = 0; i < from.length - 2; i++) {
+            RouteUtils.insertionCosts(to, sizeTo, from[i + 1], instance, insertCost);
+            int base = 3 * i;
+            for (int k = base; k < base + 3; k++) {
+                topCost[k] = Integer.MAX_VALUE;
+                topEdge[k] = -1;
+            }
+            for (int p = 0; p <= sizeTo; p++) {
+                int cost = insertCost[p];
+                if (cost >= topCost[base + 2]) continue;
+                // insertion into the sorted top three
+                int k = base + 2;
+                while (k > base && topCost[k - 1] > cost) {
+                    topCost[k] = topCost[k - 1];
+                    topEdge[k] = topEdge[k - 1];
+                    k--;
+                }
+                topCost[k] = cost;
+                topEdge[k] = p;
+            }
+        }
+    }
+
+    /**
+     * Optimizes the customer order of every route with the array-based RouteOptimizer
+     * (2-opt, Or-opt and 3-opt segment insertion), running the routes in parallel.
+     * The optimizer tours from node 1 without time windows, so other instances are left alone.
+     * @param routes list of routes in the solution
+     * @param instance CVRP instance
+     * @return true if an improvement was made, false otherwise
+     */
+    public boolean tspOptimize(List<Route> routes, CVRPInstance instance) {
+        if (!instance.isPureCVRP()) {
+            return false;
+        }
+        if (optimizer == null || optimizer.getInstance() != instance) {
+            optimizer = new RouteOptimizer(instance);
+        }
+
+        if (applyCachedSequences(routes, instance)) {
+            return true;
+        }
+
+        // routes the route cache cannot improve are left out
+        List<Integer> indices = new ArrayList<>();
+        List<Route> optimized = new ArrayList<>();
+        for (int index = 0; index < routes.size(); index++) {
+            if (!isCachedOptimal(routes.get(index))) {
+                indices.add(index);
+                optimized.add(routes.get(index));
+            }
+        }
+        if (optimizer.optimizeAll(optimized) >= 0) {
+            return false;
+        }
+
+        for (int k = 0; k < indices.size(); k++) {
+            int index = indices.get(k);
+            Route before = routes.get(index);
+            Route after = optimized.get(k);
+            if (after != before) {
+                replaceRoute(routes, index, after);
+                moveApplied(after.getDistance(instance) - before.getDistance(instance));
+            }
+        }
+        return true;
+    }
 }
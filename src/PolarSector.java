@@ -0,0 +1,124 @@
+package src;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Smallest circular sector around the depot (node 1) that contains all customers of a route.
+ * Angles are discretized to 16 bits (65536 units per turn), so that sector arithmetic is
+ * exact integer arithmetic modulo one turn.
+ *
+ * Routes of good solutions occupy narrow, mostly disjoint sectors; inter-route operators
+ * only need to consider route pairs whose sectors overlap or are adjacent. Routes keep their
+ * sector up to date (see Route.getSector).
+ */
+public final class PolarSector {
+    /** angle units per full turn */
+    public static final int TURN = 1 << 16;
+
+    private final int start;
+    private final int length;
+
+    private PolarSector(int start, int length) {
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * Computes the sector of a route: the full turn minus the largest angular gap between
+     * consecutive customers.
+     * @param customers customers of the route, not empty
+     * @param instance CVRP instance
+     * @return the sector
+     */
+    public static PolarSector of(List<Integer> customers, CVRPInstance instance) {
+        int[] angles = new int[customers.size()];
+        for (int k = 0; k < angles.length; k++) {
+            angles[k] = angle(customers.get(k), instance);
+        }
+        Arrays.sort(angles);
+        // the gap that wraps around from the last angle to the first
+        int gapEnd = 0;
+        int largestGap = angles[0] + TURN - angles[angles.length - 1];
+        for (int k = 1; k < angles.length; k++) {
+            int gap = angles[k] - angles[k - 1];
+            if (gap > largestGap) {
+                largestGap = gap;
+                gapEnd = k;
+            }
+        }
+        return new PolarSector(angles[gapEnd], TURN - largestGap);
+    }
+
+    /**
+     * Gets the polar angle of a node around the depot.
+     * @param node node index
+     * @param instance CVRP instance
+     * @return angle in [0, TURN)
+     */
+    public static int angle(int node, CVRPInstance instance) {
+        double a = Math.atan2(instance.getY(node) - instance.getY(1), instance.getX(node) - instance.getX(1));
+        return (int) Math.floorMod(Math.round(a / (2 * Math.PI) * TURN), (long) TURN);
+    }
+
+    /**
+     * Gets the smallest extension of this sector that also contains an angle, growing it at the
+     * end nearer to the angle. The result covers the same customers plus the new one but, unlike
+     * of(), need not be the smallest sector of them.
+     * @param angle angle in [0, TURN)
+     * @return this sector if it contains the angle, else the extended sector
+     */
+    public PolarSector including(int angle) {
+        if (contains(angle)) {
+            return this;
+        }
+        int before = Math.floorMod(start - angle, TURN);
+        int after = Math.floorMod(angle - start, TURN) - length;
+        if (before <= after) {
+            return new PolarSector(angle, length + before);
+        }
+        return new PolarSector(start, length + after);
+    }
+
+    /**
+     * Gets the angle halfway through the sector, e.g. to order routes around the depot.
+     * @return middle angle in [0, TURN)
+     */
+    public int getMiddle() {
+        return Math.floorMod(start + length / 2, TURN);
+    }
+
+    /**
+     * Checks whether an angle lies in this sector (bounds included).
+     * @param angle angle in [0, TURN)
+     * @return true if the sector contains the angle
+     */
+    public boolean contains(int angle) {
+        return Math.floorMod(angle - start, TURN) <= length;
+    }
+
+    /**
+     * Checks whether two sectors share at least one angle.
+     * @param other other sector
+     * @return true if the sectors overlap
+     */
+    public boolean overlaps(PolarSector other) {
+        return contains(other.start) || other.contains(start);
+    }
+
+    /**
+     * Gets the first angle of the sector, counter-clockwise.
+     * @return start angle in [0, TURN)
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the angular width of the sector.
+     * @return width in [0, TURN)
+     */
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,104 @@
+package src;
+
+/**
+ * Opt-in latency profiling of the search hot loops, enabled with -Dcvrp.profile=true.
+ *
+ * Records a latency histogram of every neighbourhood operator call, every construction,
+ * every VND descent, every GRASP iteration and every route-pool recombination; GRASP.solve prints the percentiles when it ends.
+ * The histograms are global and cumulative over all solves in the JVM (call reset to clear them).
+ *
+ * ENABLED is a static final constant, so when profiling is off the JIT removes the guarded
+ * timing code entirely: call sites use start() and record(), which do nothing in that case.
+ */
+public final class Profiler {
+    public static final boolean ENABLED = Boolean.getBoolean("cvrp.profile");
+
+    public static final LatencyHistogram CONSTRUCTION = new LatencyHistogram();
+    public static final LatencyHistogram VND_DESCENT = new LatencyHistogram();
+    public static final LatencyHistogram GRASP_ITERATION = new LatencyHistogram();
+    public static final LatencyHistogram RECOMBINATION = new LatencyHistogram();
+    private static final LatencyHistogram[] OPERATORS = new LatencyHistogram[VND.Operator.values().length];
+
+    static {
+        for (int k = 0; k < OPERATORS.length; k++) {
+            OPERATORS[k] = new LatencyHistogram();
+        }
+    }
+
+    private Profiler() {
+    }
+
+    /**
+     * Takes a start time for a measurement.
+     * @return System.nanoTime() when profiling is enabled, 0 otherwise
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since start in a histogram, if profiling is enabled.
+     * @param histogram histogram to record in
+     * @param start value returned by start()
+     */
+    public static void record(LatencyHistogram histogram, long start) {
+        if (ENABLED) {
+            histogram.recordSince(start);
+        }
+    }
+
+    /**
+     * Records the duration of one operator call, if profiling is enabled.
+     * @param op operator that was called
+     * @param start value returned by start()
+     */
+    public static void recordOperator(VND.Operator op, long start) {
+        if (ENABLED) {
+            OPERATORS[op.ordinal()].recordSince(start);
+        }
+    }
+
+    /**
+     * Gets the histogram of an operator.
+     * @param op operator
+     * @return its call latencies in nanoseconds
+     */
+    public static LatencyHistogram operator(VND.Operator op) {
+        return OPERATORS[op.ordinal()];
+    }
+
+    /**
+     * Formats all non-empty histograms.
+     * @return one line per operator and stage, latencies in microseconds
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (VND.Operator op : VND.Operator.values()) {
+            appendIfUsed(sb, OPERATORS[op.ordinal()], op.name());
+        }
+        appendIfUsed(sb, CONSTRUCTION, "CONSTRUCTION");
+        appendIfUsed(sb, VND_DESCENT, "VND");
+        appendIfUsed(sb, GRASP_ITERATION, "ITERATION");
+        appendIfUsed(sb, RECOMBINATION, "RECOMBINATION");
+        return sb.toString();
+    }
+
+    /**
+     * Clears all histograms.
+     */
+    public static void reset() {
+        for (LatencyHistogram h : OPERATORS) {
+            h.reset();
+        }
+        CONSTRUCTION.reset();
+        VND_DESCENT.reset();
+        GRASP_ITERATION.reset();
+        RECOMBINATION.reset();
+    }
+
+    private static void appendIfUsed(StringBuilder sb, LatencyHistogram h, String name) {
+        if (h.getCount() > 0) {
+            sb.append(h.summary(name)).append(System.lineSeparator());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * Counter-based random streams for reproducible runs.
+ *
+ * Every (seed, stream index) pair maps to its own independent generator, so the random
+ * choices of e.g. GRASP iteration i depend only on the seed and i, not on how many draws
+ * other iterations made or on which thread ran them. Any single iteration can therefore be
+ * replayed in isolation.
+ *
+ * The generator is SplitMix64 (the algorithm behind java.util.SplittableRandom), exposed as a
+ * java.util.Random so it can be passed to the existing construction heuristics. Unlike
+ * java.util.Random it is not synchronized: every stream is meant to be used by one thread.
+ */
+public final class RandomStreams {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private RandomStreams() {
+    }
+
+    /**
+     * Creates the generator of one stream.
+     * @param seed run seed
+     * @param index stream index, e.g. the GRASP iteration number
+     * @return generator whose output depends only on seed and index
+     */
+    public static Random stream(long seed, long index) {
+        return new SplitMixRandom(streamSeed(seed, index));
+    }
+
+    /**
+     * Derives the initial state of a stream. Neighbouring indices and seeds give unrelated states.
+     * @param seed run seed
+     * @param index stream index
+     * @return initial SplitMix64 state
+     */
+    public static long streamSeed(long seed, long index) {
+        return mix64(mix64(seed) + (index + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * SplitMix64 finalizer (variant 13 of Stafford's mixers).
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Unsynchronized SplitMix64 generator behind the java.util.Random interface.
+     */
+    private static final class SplitMixRandom extends Random {
+        private static final long serialVersionUID = 1L;
+
+        private long state;
+
+        SplitMixRandom(long seed) {
+            super(seed);
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            // also called by the Random constructor, before the subclass is initialized
+            state = seed;
+        }
+
+        @Override
+        protected int next(int bits) {
+            return (int) (nextLong() >>> (64 - bits));
+        }
+
+        @Override
+        public long nextLong() {
+            state += GOLDEN_GAMMA;
+            return mix64(state);
+        }
+
+        @Override
+        public int nextInt() {
+            return (int) (nextLong() >>> 32);
+        }
+
+        @Override
+        public double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * A randomized construction heuristic that GRASP can use to build its starting solutions.
+ */
+public interface RandomizedConstructor {
+    /**
+     * Constructs a feasible solution.
+     * @param instance CVRP instance
+     * @param rng random source for the randomized choices
+     * @return constructed solution
+     */
+    CVRPSolution construct(CVRPInstance instance, Random rng);
+}
@@ -0,0 +1,211 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Self-check of the recombination building blocks, run as a program since the project has no
+ * test framework: SetPartitioning against brute-force enumeration on random small pools, the
+ * primitive key index of RoutePool against a HashMap while it is filled and drained, and
+ * RoutePool.recombine on generated instances (the result must be a valid solution that is
+ * not longer than the incumbent).
+ *
+ * Usage: RecombinationCheck [trials], default 500. Exits with status 1 on the first failure.
+ */
+public class RecombinationCheck {
+
+    public static void main(String[] args) throws Exception {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        try {
+            checkSetPartitioning(trials, new Random(1));
+            checkSetIndex(new Random(2));
+            checkRecombine();
+        } catch (IllegalStateException e) {
+            System.err.println("FAILED: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /**
+     * Compares SetPartitioning with brute force on random pools of up to 18 routes over up to
+     * 10 customers.
+     */
+    private static void checkSetPartitioning(int trials, Random rng) {
+        int covers = 0;
+        for (int t = 0; t < trials; t++) {
+            int customerCount = 1 + rng.nextInt(10);
+            int nodes = customerCount + 1;
+            int[] customers = new int[customerCount];
+            for (int k = 0; k < customerCount; k++) {
+                customers[k] = k + 2;
+            }
+            List<int[]> columns = new ArrayList<>();
+            int columnCount = 1 + rng.nextInt(18);
+            int[] costs = new int[columnCount];
+            for (int r = 0; r < columnCount; r++) {
+                int size = 1 + rng.nextInt(Math.min(4, customerCount));
+                int[] shuffled = customers.clone();
+                for (int k = shuffled.length - 1; k > 0; k--) {
+                    int j = rng.nextInt(k + 1);
+                    int tmp = shuffled[k];
+                    shuffled[k] = shuffled[j];
+                    shuffled[j] = tmp;
+                }
+                columns.add(Arrays.copyOf(shuffled, size));
+                costs[r] = 1 + rng.nextInt(100);
+            }
+
+            int best = bruteForce(columns, costs, new boolean[nodes + 1], 0, customerCount, 0);
+            SetPartitioning sp = new SetPartitioning(columns, costs, customers, nodes);
+            int[] chosen = sp.solve(Integer.MAX_VALUE, Long.MAX_VALUE);
+            if (best == Integer.MAX_VALUE) {
+                expect(chosen == null, "trial " + t + ": cover found where none exists");
+                continue;
+            }
+            covers++;
+            expect(chosen != null, "trial " + t + ": no cover found, brute force has " + best);
+            expect(sp.isComplete(), "trial " + t + ": search incomplete without node limit");
+            boolean[] covered = new boolean[nodes + 1];
+            int cost = 0;
+            for (int r : chosen) {
+                cost += costs[r];
+                for (int c : columns.get(r)) {
+                    expect(!covered[c], "trial " + t + ": customer " + c + " covered twice");
+                    covered[c] = true;
+                }
+            }
+            for (int c : customers) {
+                expect(covered[c], "trial " + t + ": customer " + c + " not covered");
+            }
+            expect(cost == best, "trial " + t + ": cover of " + cost + ", brute force has " + best);
+            expect(sp.solve(best, Long.MAX_VALUE) == null, "trial " + t + ": cover found below the optimum " + best);
+        }
+        System.out.println("SetPartitioning: " + trials + " pools (" + covers + " with a cover) match brute force");
+    }
+
+    /**
+     * Finds the cheapest exact cover by trying every subset of disjoint columns.
+     * @return its cost, or Integer.MAX_VALUE if there is none
+     */
+    private static int bruteForce(List<int[]> columns, int[] costs, boolean[] covered, int next, int uncovered,
+                                  int cost) {
+        if (uncovered == 0) {
+            return cost;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int r = next; r < columns.size(); r++) {
+            boolean fits = true;
+            for (int c : columns.get(r)) {
+                fits &= !covered[c];
+            }
+            if (!fits) {
+                continue;
+            }
+            for (int c : columns.get(r)) {
+                covered[c] = true;
+            }
+            best = Math.min(best, bruteForce(columns, costs, covered, r + 1, uncovered - columns.get(r).length,
+                    cost + costs[r]));
+            for (int c : columns.get(r)) {
+                covered[c] = false;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fills the key index of RoutePool with colliding and random keys, removes them in random
+     * order with lookups in between, and compares every step with a HashMap.
+     */
+    private static void checkSetIndex(Random rng) {
+        RoutePool.SetIndex index = new RoutePool.SetIndex();
+        Map<Long, Integer> reference = new HashMap<>();
+        List<Long> keys = new ArrayList<>();
+        for (int k = 0; k < 20000; k++) {
+            // small keys give long probe runs around the same slots, random ones spread out
+            long key = k % 2 == 0 ? k / 2 : rng.nextLong();
+            keys.add(key);
+            index.put(key, k);
+            reference.put(key, k);
+        }
+        compare(index, reference, keys, "after filling");
+
+        for (int round = 0; round < 2; round++) {
+            for (int k = keys.size() - 1; k > 0; k--) {
+                int j = rng.nextInt(k + 1);
+                Long tmp = keys.get(k);
+                keys.set(k, keys.get(j));
+                keys.set(j, tmp);
+            }
+            for (int k = 0; k < keys.size(); k++) {
+                index.remove(keys.get(k));
+                reference.remove(keys.get(k));
+                if (k % 997 == 0) {
+                    compare(index, reference, keys, "while draining");
+                }
+            }
+            compare(index, reference, keys, "after draining");
+            expect(index.size == 0, "index holds " + index.size + " entries after draining");
+            for (int k = 0; k < keys.size(); k++) {
+                index.put(keys.get(k), k);
+                reference.put(keys.get(k), k);
+            }
+            compare(index, reference, keys, "after refilling");
+        }
+        System.out.println("SetIndex: " + keys.size() + " keys filled and drained twice, matching a HashMap");
+    }
+
+    private static void compare(RoutePool.SetIndex index, Map<Long, Integer> reference, List<Long> keys, String when) {
+        expect(index.size == reference.size(), when + ": index holds " + index.size + " entries, expected "
+                + reference.size());
+        for (long key : keys) {
+            int expected = reference.getOrDefault(key, -1);
+            expect(index.get(key) == expected, when + ": key " + key + " maps to " + index.get(key)
+                    + ", expected " + expected);
+        }
+    }
+
+    /**
+     * Recombines the local optima of short GRASP runs on generated instances.
+     */
+    private static void checkRecombine() {
+        InstanceGenerator generator = new InstanceGenerator(InstanceGenerator.Layout.CLUSTERED,
+                InstanceGenerator.DepotPosition.CENTRAL, 10);
+        for (int seed = 1; seed <= 3; seed++) {
+            CVRPInstance instance = generator.generate(100, seed);
+            RoutePool pool = new RoutePool(2000);
+            GRASP grasp = new GRASP(0.3);
+            VND vnd = new VND();
+            CVRPSolution best = null;
+            for (int it = 0; it < 30; it++) {
+                CVRPSolution sol = vnd.solve(grasp.constructInitalSol(instance, new Random(seed * 1000L + it)), instance);
+                pool.addAll(sol, instance);
+                if (best == null || sol.getTotalDistance(instance) < best.getTotalDistance(instance)) {
+                    best = sol;
+                }
+            }
+            int incumbent = best.getTotalDistance(instance);
+            CVRPSolution recombined = pool.recombine(instance, best, 20000);
+            if (recombined != null) {
+                List<String> errors = new SolutionValidator(instance).validate(recombined);
+                expect(errors.isEmpty(), "recombined solution is invalid: " + errors);
+                expect(recombined.getTotalDistance(instance) < incumbent, "recombined solution of "
+                        + recombined.getTotalDistance(instance) + " is not shorter than " + incumbent);
+            }
+            System.out.println("Recombine: instance " + seed + " " + incumbent + " -> "
+                    + (recombined == null ? "no improvement" : recombined.getTotalDistance(instance))
+                    + ", pool of " + pool.size() + " routes");
+        }
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
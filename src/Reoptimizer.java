@@ -0,0 +1,198 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a solution up to date while the instance changes one customer at a time, e.g. for live
+ * dispatching. Every change is applied to the instance and the solution as a delta, capacity
+ * violations are repaired locally (SolutionRepair on the affected routes) and VND is run only
+ * on the affected route and the routes closest to it; the rest of the solution is not touched.
+ *
+ * The instance is replaced by a new object on every change (see CVRPInstance.withDemand,
+ * withAddedCustomer and withRemovedCustomer), which do not carry time windows and extra
+ * depots over, so only plain CVRP instances are accepted.
+ */
+public class Reoptimizer {
+    private final VND vnd;
+    private final int neighbourRoutes;
+    private CVRPInstance instance;
+    private CVRPSolution solution;
+
+    public Reoptimizer(CVRPInstance instance, CVRPSolution solution) {
+        this(instance, solution, new VND(), 3);
+    }
+
+    /**
+     * Constructor
+     * @param instance current instance
+     * @param solution current solution (copied)
+     * @param vnd local search used after every change
+     * @param neighbourRoutes number of nearby routes re-optimized together with the affected route
+     * @throws IllegalArgumentException if the instance has time windows or several depots
+     */
+    public Reoptimizer(CVRPInstance instance, CVRPSolution solution, VND vnd, int neighbourRoutes) {
+        if (!instance.isPureCVRP()) {
+            throw new IllegalArgumentException("Live updates of instances with time windows or several depots are not supported");
+        }
+        this.instance = instance;
+        this.solution = solution.copy();
+        this.solution.getRoutes().removeIf(r -> r.getCustomers().isEmpty());
+        this.vnd = vnd;
+        this.neighbourRoutes = neighbourRoutes;
+    }
+
+    /**
+     * Changes the demand of a customer.
+     * @param customer customer index
+     * @param demand new demand, at most the vehicle capacity
+     * @return total distance of the updated solution
+     * @throws IllegalArgumentException if the demand is negative or exceeds the capacity
+     */
+    public int changeDemand(int customer, int demand) {
+        checkDemand(demand);
+        Route r = solution.findRoute(customer);
+        if (r == null) {
+            throw new IllegalArgumentException("Customer " + customer + " is not in the solution");
+        }
+        instance = instance.withDemand(customer, demand);
+        r.updateDemand(instance);
+        reoptimize(r);
+        return getCost();
+    }
+
+    /**
+     * Adds a customer and inserts it at its cheapest feasible position.
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param demand demand, at most the vehicle capacity
+     * @return index of the new customer
+     * @throws IllegalArgumentException if the demand is negative or exceeds the capacity
+     */
+    public int addCustomer(int x, int y, int demand) {
+        checkDemand(demand);
+        instance = instance.withAddedCustomer(x, y, demand);
+        int customer = instance.getNodes();
+        reoptimize(solution.insertCheapest(customer, instance));
+        return customer;
+    }
+
+    /**
+     * Removes a customer. The customer with the highest index takes over the removed index
+     * (see CVRPInstance.withRemovedCustomer).
+     * @param customer customer index
+     * @return the former index of the customer that now has index customer
+     */
+    public int removeCustomer(int customer) {
+        int last = instance.getNodes();
+        Route r = solution.removeCustomer(customer, instance);
+        if (r == null) {
+            throw new IllegalArgumentException("Customer " + customer + " is not in the solution");
+        }
+        instance = instance.withRemovedCustomer(customer);
+        if (customer != last) {
+            solution.relabel(last, customer);
+        }
+        if (!r.getCustomers().isEmpty()) {
+            reoptimize(r);
+        }
+        return last;
+    }
+
+    /**
+     * Gets the current instance.
+     * @return instance including all changes so far
+     */
+    public CVRPInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the current solution. It is updated in place by later changes.
+     * @return current solution
+     */
+    public CVRPSolution getSolution() {
+        return solution;
+    }
+
+    /**
+     * Gets the total distance of the current solution.
+     * @return total distance
+     */
+    public int getCost() {
+        return solution.getTotalDistance(instance);
+    }
+
+    /**
+     * Rejects a demand no vehicle can serve; repairing a route around it would never terminate.
+     * @param demand new demand
+     */
+    private void checkDemand(int demand) {
+        if (demand < 0 || demand > instance.getCapacity()) {
+            throw new IllegalArgumentException("Demand " + demand + " is outside [0, " + instance.getCapacity() + "]");
+        }
+    }
+
+    /**
+     * Repairs and improves the affected route together with its nearest routes.
+     * @param affected route changed by the last delta
+     */
+    private void reoptimize(Route affected) {
+        List<Route> selected = nearestRoutes(affected);
+        CVRPSolution sub = new CVRPSolution(selected);
+        if (!sub.isFeasible(instance)) {
+            sub = SolutionRepair.repair(sub, instance, false);
+        }
+        sub = vnd.solve(sub, instance, true);
+
+        List<Route> routes = solution.getRoutes();
+        routes.removeIf(r -> selected.stream().anyMatch(s -> s == r));
+        for (Route r : sub.getRoutes()) {
+            if (!r.getCustomers().isEmpty()) {
+                routes.add(r);
+            }
+        }
+        if (vnd.isValidating()) {
+            new SolutionValidator(instance).check(solution);
+        }
+    }
+
+    /**
+     * Selects the affected route and the neighbourRoutes routes with a customer closest to it.
+     */
+    private List<Route> nearestRoutes(Route affected) {
+        List<Route> routes = solution.getRoutes();
+        int[] closeness = new int[routes.size()];
+        for (int k = 0; k < routes.size(); k++) {
+            Route r = routes.get(k);
+            int best = Integer.MAX_VALUE;
+            if (r != affected) {
+                for (int c : r.getCustomers()) {
+                    int[] row = instance.getDistanceRow(c);
+                    for (int a : affected.getCustomers()) {
+                        best = Math.min(best, row[a]);
+                    }
+                }
+            }
+            closeness[k] = best;
+        }
+
+        List<Route> selected = new ArrayList<>();
+        selected.add(affected);
+        boolean[] taken = new boolean[routes.size()];
+        for (int s = 0; s < neighbourRoutes; s++) {
+            int best = -1;
+            for (int k = 0; k < routes.size(); k++) {
+                if (!taken[k] && closeness[k] != Integer.MAX_VALUE && (best == -1 || closeness[k] < closeness[best])) {
+                    best = k;
+                }
+            }
+            if (best == -1) {
+                break;
+            }
+            taken[best] = true;
+            selected.add(routes.get(best));
+        }
+        return selected;
+    }
+}
@@ -4,16 +4,41 @@ import java.util.List;
 import java.util.Collections;
 
 /**
- * This class represents a route in a CVRP solution.
+ * This class represents a route in a CVRP solution: customers visited in order by one vehicle
+ * that starts and ends at the route's depot (node 1 unless given).
  */
 public class Route {
     private final List<Integer> customers = new ArrayList<>();
+    private final int depot;
     private int demand = 0;
+    /** polar sector of the customers, or null if not computed since the customer set changed */
+    private PolarSector sector;
+    private CVRPInstance sectorInstance;
 
     public Route() {
+        this(1);
+    }
+
+    /**
+     * Constructor for an empty route.
+     * @param depot depot the route starts and ends at
+     */
+    public Route(int depot) {
+        this.depot = depot;
     }
 
     public Route(List<Integer> customers, CVRPInstance instance) {
+        this(customers, instance, 1);
+    }
+
+    /**
+     * Constructor
+     * @param customers customers in visiting order
+     * @param instance instance from which to get the demands
+     * @param depot depot the route starts and ends at
+     */
+    public Route(List<Integer> customers, CVRPInstance instance, int depot) {
+        this.depot = depot;
         this.customers.addAll(customers);
         this.demand = 0;
         for (int c : customers) {
@@ -21,6 +46,19 @@ public class Route {
         }
     }
 
+    /**
+     * Creates an independent copy of this route.
+     * @return copy of the route
+     */
+    public Route copy() {
+        Route r = new Route(depot);
+        r.customers.addAll(customers);
+        r.demand = demand;
+        r.sector = sector;
+        r.sectorInstance = sectorInstance;
+        return r;
+    }
+
     /**
      * Adds a customer to the end of the route and updates the demand.
      * @param customer customer to add
@@ -29,6 +67,7 @@ public class Route {
     public void addCustomerToEnd(int customer, CVRPInstance instance) {
         customers.add(customer);
         demand += instance.getDemand(customer);
+        extendSector(customer, instance);
     }
 
     /**
@@ -39,6 +78,93 @@ public class Route {
     public void addCustomerToStart(int customer, CVRPInstance instance) {
         customers.add(0, customer);
         demand += instance.getDemand(customer);
+        extendSector(customer, instance);
+    }
+
+    /**
+     * Inserts a customer at the given position and updates the demand.
+     * @param position index the customer gets (0 = first)
+     * @param customer customer to insert
+     * @param instance CVRP instance from which to get the demand
+     */
+    public void insertCustomer(int position, int customer, CVRPInstance instance) {
+        customers.add(position, customer);
+        demand += instance.getDemand(customer);
+        extendSector(customer, instance);
+    }
+
+    /**
+     * Removes a customer from the route and updates the demand.
+     * @param customer customer to remove
+     * @param instance CVRP instance from which to get the demand
+     * @return true if the customer was in the route
+     */
+    public boolean removeCustomer(int customer, CVRPInstance instance) {
+        int pos = customers.indexOf(customer);
+        if (pos == -1) {
+            return false;
+        }
+        customers.remove(pos);
+        demand -= instance.getDemand(customer);
+        sector = null;
+        return true;
+    }
+
+    /**
+     * Renames a customer, e.g. after the instance moved it to another node index.
+     * The demand is unchanged.
+     * @param from old customer index
+     * @param to new customer index
+     * @return true if the customer was in the route
+     */
+    public boolean relabel(int from, int to) {
+        int pos = customers.indexOf(from);
+        if (pos == -1) {
+            return false;
+        }
+        customers.set(pos, to);
+        sector = null;
+        return true;
+    }
+
+    /**
+     * Recomputes the demand of the route, after demands in the instance have changed.
+     * @param instance CVRP instance from which to get the demands
+     */
+    public void updateDemand(CVRPInstance instance) {
+        demand = 0;
+        for (int c : customers) {
+            demand += instance.getDemand(c);
+        }
+    }
+
+    /**
+     * Gets the polar sector around the depot that contains the customers of the route. It is
+     * computed on first use and then kept up to date by the methods of this class that add,
+     * remove or rename customers; reordering the customers does not change it.
+     * @param instance CVRP instance from which to get the coordinates
+     * @return the sector, or null if the route is empty
+     */
+    public PolarSector getSector(CVRPInstance instance) {
+        if (customers.isEmpty()) {
+            return null;
+        }
+        if (sector == null || sectorInstance != instance) {
+            sector = PolarSector.of(customers, instance);
+            sectorInstance = instance;
+        }
+        return sector;
+    }
+
+    /**
+     * Extends the sector, if computed, to an added customer.
+     */
+    private void extendSector(int customer, CVRPInstance instance) {
+        if (sector != null && sectorInstance == instance) {
+            sector = sector.including(PolarSector.angle(customer, instance));
+        } else {
+            sector = null;
+        }
     }
 
     /**
@@ -97,16 +223,33 @@ public class Route {
         Collections.reverse(customers);
     }
 
+    /**
+     * Gets the depot the route starts and ends at.
+     * @return depot node
+     */
+    public int getDepot() {
+        return depot;
+    }
+
     /**
      * Gets the total distance of the route (Euclidean), including return to depot.
      * @param instance CVRP instance from which to get distances
      * @return the total distance of the route
      */
     public int getDistance(CVRPInstance instance) {
+        return getDistance(instance, depot);
+    }
+
+    /**
+     * Gets the total distance of the route when it starts and ends at the given depot.
+     * @param instance instance from which to get distances
+     * @param depot depot node of the route
+     * @return the total distance of the route
+     */
+    public int getDistance(CVRPInstance instance, int depot) {
         if (customers.isEmpty()) {
             return 0;
         }
-        int depot = 1;
         int totDist = 0;
         int prev = depot;
 
@@ -0,0 +1,222 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe memo of the best known sequence of a customer set.
+ *
+ * GRASP iterations keep producing routes with customer sets seen before, and VND's intra-route
+ * operators then rediscover the same order. VND stores every route of its local optima here;
+ * NeighbourhoodReal looks new routes up, takes over a shorter cached sequence and skips the
+ * intra-route search on routes the cache cannot improve.
+ *
+ * Keys are an order-independent 64-bit hash of the customer set (a sum of mixed customer
+ * indices); a hit is confirmed by comparing the customer sets, so hash collisions never change
+ * a route. The cache holds two generations of at most capacity / 2 entries each: when the young
+ * one is full it becomes the old one and the previous old one is dropped, and hits in the old
+ * generation are copied to the young one. This keeps recently used sequences like an LRU cache,
+ * without locks on lookups.
+ *
+ * Distances depend on the instance, so the cache empties itself when it is used with another one.
+ */
+public class RouteCache {
+    /** smallest route worth caching: two customers have only one distinct order */
+    private static final int MIN_CUSTOMERS = 3;
+    /** estimated bytes per entry besides the sequence: map node, Long key, Entry, array header */
+    private static final int ENTRY_OVERHEAD = 32 + 16 + 24 + 16;
+
+    private final int generationSize;
+    private volatile Map<Long, Entry> young = new ConcurrentHashMap<>();
+    private volatile Map<Long, Entry> old = new ConcurrentHashMap<>();
+    private volatile CVRPInstance instance;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Cached sequence of a customer set.
+     */
+    public static final class Entry {
+        private final int[] sequence;
+        private final int distance;
+
+        Entry(int[] sequence, int distance) {
+            this.sequence = sequence;
+            this.distance = distance;
+        }
+
+        /**
+         * Gets the best known customer order.
+         * @return new list of the customers in visiting order
+         */
+        public List<Integer> getCustomers() {
+            List<Integer> customers = new ArrayList<>(sequence.length);
+            for (int c : sequence) {
+                customers.add(c);
+            }
+            return customers;
+        }
+
+        /**
+         * Gets the distance of the sequence.
+         * @return route distance including the depot
+         */
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param capacity maximum number of cached customer sets
+     */
+    public RouteCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.generationSize = capacity / 2;
+    }
+
+    /**
+     * Looks up the best known sequence of the customer set of a route.
+     * @param customers customers of the route, in any order
+     * @param instance CVRP instance
+     * @return the cached entry, or null if the set is unknown or too small to be cached
+     */
+    public Entry lookup(List<Integer> customers, CVRPInstance instance) {
+        if (customers.size() < MIN_CUSTOMERS) {
+            return null;
+        }
+        useInstance(instance);
+        long key = RouteUtils.customerSetKey(customers);
+        Entry e = young.get(key);
+        if (e == null || !RouteUtils.sameCustomerSet(e.sequence, customers)) {
+            e = old.get(key);
+            if (e == null || !RouteUtils.sameCustomerSet(e.sequence, customers)) {
+                misses.incrementAndGet();
+                return null;
+            }
+            young.putIfAbsent(key, e);
+            rotateIfFull();
+        }
+        hits.incrementAndGet();
+        return e;
+    }
+
+    /**
+     * Stores the sequence of a route if it is shorter than the cached one for its customer set.
+     * @param route route, typically of a VND local optimum
+     * @param instance CVRP instance
+     * @return true if the route was stored
+     */
+    public boolean offer(Route route, CVRPInstance instance) {
+        List<Integer> customers = route.getCustomers();
+        if (customers.size() < MIN_CUSTOMERS) {
+            return false;
+        }
+        useInstance(instance);
+        long key = RouteUtils.customerSetKey(customers);
+        int distance = route.getDistance(instance);
+        Entry current = young.get(key);
+        if (current == null) {
+            current = old.get(key);
+        }
+        if (current != null && current.distance <= distance && RouteUtils.sameCustomerSet(current.sequence, customers)) {
+            return false;
+        }
+        int[] sequence = new int[customers.size()];
+        for (int k = 0; k < sequence.length; k++) {
+            sequence[k] = customers.get(k);
+        }
+        // concurrent offers of the same set: keep the shorter sequence
+        young.merge(key, new Entry(sequence, distance), (a, b) -> a.distance <= b.distance ? a : b);
+        rotateIfFull();
+        return true;
+    }
+
+    private void rotateIfFull() {
+        if (young.size() >= generationSize) {
+            synchronized (this) {
+                if (young.size() >= generationSize) {
+                    old = young;
+                    young = new ConcurrentHashMap<>();
+                }
+            }
+        }
+    }
+
+    private void useInstance(CVRPInstance instance) {
+        if (this.instance != instance) {
+            synchronized (this) {
+                if (this.instance != instance) {
+                    young = new ConcurrentHashMap<>();
+                    old = new ConcurrentHashMap<>();
+                    this.instance = instance;
+                }
+            }
+        }
+    }
+
+    /**
+     * Empties the cache and resets the statistics.
+     */
+    public synchronized void clear() {
+        young = new ConcurrentHashMap<>();
+        old = new ConcurrentHashMap<>();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Gets the number of cached customer sets (an entry promoted from the old generation may be
+     * counted twice).
+     * @return number of entries
+     */
+    public int size() {
+        return young.size() + old.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the fraction of lookups that found the customer set.
+     * @return hit rate in [0, 1], 0 before the first lookup
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Estimates the heap used by the cached entries.
+     * @return estimated bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Map<Long, Entry> generation : List.of(young, old)) {
+            for (Entry e : generation.values()) {
+                bytes += ENTRY_OVERHEAD + 4L * e.sequence.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets a one-line summary of the cache metrics.
+     * @return entries, hit rate and estimated memory
+     */
+    public String summary() {
+        return String.format("Route cache: %d routes, hit rate %.1f%% (%d of %d lookups), %.2f MB",
+                size(), 100 * getHitRate(), getHits(), getHits() + getMisses(), getMemoryBytes() / 1048576.0);
+    }
+}
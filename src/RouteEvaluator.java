@@ -0,0 +1,108 @@
+package src;
+
+import java.util.List;
+
+/**
+ * O(1) evaluation of single-customer changes to one route, after O(L) preprocessing.
+ *
+ * Use RouteEvaluator.of to get the right implementation: pure CVRP instances get
+ * CVRPRouteEvaluator, which only looks at the changed edges and the load, so the CVRP path
+ * pays nothing for time windows. Instances with time windows or other depots get
+ * TimeWindowRouteEvaluator, which concatenates precomputed forward/backward segments.
+ */
+public interface RouteEvaluator {
+    /**
+     * Creates an evaluator for a route.
+     * @param instance instance (a TWInstance for time windows or multiple depots)
+     * @param customers customers of the route in visiting order
+     * @param depot depot the route starts and ends at
+     * @return evaluator for the route
+     */
+    static RouteEvaluator of(CVRPInstance instance, List<Integer> customers, int depot) {
+        if (!instance.isPureCVRP()) {
+            return new TimeWindowRouteEvaluator((TWInstance) instance, customers, depot);
+        }
+        return new CVRPRouteEvaluator(instance, customers, depot);
+    }
+
+    /**
+     * Gets the number of customers of the route.
+     * @return route length
+     */
+    int size();
+
+    /**
+     * Gets the distance of the route.
+     * @return distance
+     */
+    int getDistance();
+
+    /**
+     * Gets the load of the route.
+     * @return load
+     */
+    int getLoad();
+
+    /**
+     * Checks whether the route itself is feasible.
+     * @return true if capacity and time windows are respected
+     */
+    boolean isFeasible();
+
+    /**
+     * Change in distance when the customer at position pos is removed.
+     * @param pos position of the customer (0-based)
+     * @return distance delta
+     */
+    int removalDelta(int pos);
+
+    /**
+     * Checks whether the route stays feasible when the customer at position pos is removed.
+     * @param pos position of the customer (0-based)
+     * @return true if feasible
+     */
+    boolean canRemove(int pos);
+
+    /**
+     * Change in distance when a customer is inserted before position pos.
+     * @param customer customer to insert
+     * @param pos insertion position (0 = first, size = last)
+     * @return distance delta
+     */
+    int insertionDelta(int customer, int pos);
+
+    /**
+     * Checks whether the route stays feasible when a customer is inserted before position pos.
+     * @param customer customer to insert
+     * @param pos insertion position (0 = first, size = last)
+     * @return true if feasible
+     */
+    boolean canInsert(int customer, int pos);
+
+    /**
+     * Computes insertionDelta for every position at once.
+     * @param customer customer to insert
+     * @param out output array of length at least size() + 1: out[pos] = insertionDelta(customer, pos)
+     */
+    default void insertionDeltas(int customer, int[] out) {
+        for (int pos = 0; pos <= size(); pos++) {
+            out[pos] = insertionDelta(customer, pos);
+        }
+    }
+
+    /**
+     * Change in distance when the customer at position pos is replaced by another one.
+     * @param pos position of the customer to replace
+     * @param customer new customer
+     * @return distance delta
+     */
+    int replacementDelta(int pos, int customer);
+
+    /**
+     * Checks whether the route stays feasible when the customer at position pos is replaced.
+     * @param pos position of the customer to replace
+     * @param customer new customer
+     * @return true if feasible
+     */
+    boolean canReplace(int pos, int customer);
+}
@@ -0,0 +1,172 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Self-check of the route evaluators, run as a program since the project has no test
+ * framework. On random routes of random instances, every O(1) removal, insertion and
+ * replacement of CVRPRouteEvaluator and TimeWindowRouteEvaluator is compared with a plain
+ * simulation of the changed route: its distance, its load and, with time windows, whether
+ * the earliest schedule meets every window.
+ *
+ * Usage: RouteEvaluatorCheck [trials], default 2000. Exits with status 1 on the first failure.
+ */
+public class RouteEvaluatorCheck {
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random rng = new Random(1);
+        long checks = 0;
+        try {
+            for (int t = 0; t < trials; t++) {
+                TWInstance instance = randomInstance(rng, t % 2 == 0);
+                checks += checkRoute(instance, randomRoute(instance, rng), t);
+            }
+        } catch (IllegalStateException e) {
+            System.err.println("FAILED: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("All checks passed: " + checks + " evaluations on " + trials + " routes");
+    }
+
+    /**
+     * Creates an instance of up to 12 customers with depot 1, with time windows or as plain CVRP.
+     */
+    private static TWInstance randomInstance(Random rng, boolean timeWindows) {
+        int nodes = 3 + rng.nextInt(11);
+        int[] x = new int[nodes + 1];
+        int[] y = new int[nodes + 1];
+        int[] demand = new int[nodes + 1];
+        int[] ready = new int[nodes + 1];
+        int[] due = new int[nodes + 1];
+        int[] service = new int[nodes + 1];
+        for (int i = 1; i <= nodes; i++) {
+            x[i] = rng.nextInt(100);
+            y[i] = rng.nextInt(100);
+            if (i > 1) {
+                demand[i] = 1 + rng.nextInt(10);
+                ready[i] = rng.nextInt(300);
+                due[i] = ready[i] + rng.nextInt(200);
+                service[i] = rng.nextInt(10);
+            }
+        }
+        due[1] = 600 + rng.nextInt(400);
+        int capacity = 10 + rng.nextInt(40);
+        return timeWindows
+                ? new TWInstance(nodes, capacity, x, y, demand, new int[]{1}, ready, due, service)
+                : new TWInstance(nodes, capacity, x, y, demand, new int[]{1}, null, null, null);
+    }
+
+    /**
+     * Takes a random subset of the customers in random order.
+     */
+    private static List<Integer> randomRoute(CVRPInstance instance, Random rng) {
+        List<Integer> route = new ArrayList<>();
+        for (int c = 2; c <= instance.getNodes(); c++) {
+            if (rng.nextInt(3) > 0) {
+                route.add(rng.nextInt(route.size() + 1), c);
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Compares every single-customer change of a route with a simulation.
+     * @return number of evaluations compared
+     */
+    private static int checkRoute(TWInstance instance, List<Integer> route, int trial) {
+        RouteEvaluator eval = RouteEvaluator.of(instance, route, 1);
+        expect(instance.hasTimeWindows() == (eval instanceof TimeWindowRouteEvaluator),
+                trial, "wrong evaluator " + eval.getClass().getSimpleName());
+        expect(eval.size() == route.size(), trial, "size " + eval.size());
+        int distance = distance(instance, route);
+        expect(eval.getDistance() == distance, trial, "distance " + eval.getDistance() + ", expected " + distance);
+        expect(eval.getLoad() == load(instance, route), trial, "load " + eval.getLoad());
+        expect(eval.isFeasible() == feasible(instance, route), trial, "feasibility of " + route);
+        int checks = 1;
+
+        List<Integer> outside = new ArrayList<>();
+        for (int c = 2; c <= instance.getNodes(); c++) {
+            if (!route.contains(c)) {
+                outside.add(c);
+            }
+        }
+        int[] batch = new int[route.size() + 1];
+        for (int pos = 0; pos < route.size(); pos++) {
+            List<Integer> changed = new ArrayList<>(route);
+            changed.remove(pos);
+            compare(instance, eval.removalDelta(pos), eval.canRemove(pos), distance, changed, trial, "removal at " + pos);
+            checks++;
+            for (int c : outside) {
+                changed = new ArrayList<>(route);
+                changed.set(pos, c);
+                compare(instance, eval.replacementDelta(pos, c), eval.canReplace(pos, c), distance, changed, trial,
+                        "replacement of position " + pos + " by " + c);
+                checks++;
+            }
+        }
+        for (int c : outside) {
+            eval.insertionDeltas(c, batch);
+            for (int pos = 0; pos <= route.size(); pos++) {
+                List<Integer> changed = new ArrayList<>(route);
+                changed.add(pos, c);
+                compare(instance, eval.insertionDelta(c, pos), eval.canInsert(c, pos), distance, changed, trial,
+                        "insertion of " + c + " at " + pos);
+                expect(batch[pos] == eval.insertionDelta(c, pos), trial, "batched insertion of " + c + " at " + pos);
+                checks++;
+            }
+        }
+        return checks;
+    }
+
+    private static void compare(TWInstance instance, int delta, boolean feasible, int distance, List<Integer> changed,
+                                int trial, String move) {
+        int expected = distance(instance, changed) - distance;
+        expect(delta == expected, trial, move + ": delta " + delta + ", expected " + expected);
+        expect(feasible == feasible(instance, changed), trial, move + ": feasibility " + feasible + " of " + changed);
+    }
+
+    private static int distance(CVRPInstance instance, List<Integer> route) {
+        return new Route(route, instance).getDistance(instance);
+    }
+
+    private static int load(CVRPInstance instance, List<Integer> route) {
+        int load = 0;
+        for (int c : route) {
+            load += instance.getDemand(c);
+        }
+        return load;
+    }
+
+    /**
+     * Simulates the route leaving the depot at its ready time and waiting at early arrivals,
+     * which gives the earliest arrival everywhere: the windows can be met iff they are met then.
+     */
+    private static boolean feasible(TWInstance instance, List<Integer> route) {
+        if (load(instance, route) > instance.getCapacity()) {
+            return false;
+        }
+        if (!instance.hasTimeWindows() || route.isEmpty()) {
+            return true;
+        }
+        int time = instance.getReady(1) + instance.getService(1);
+        int prev = 1;
+        for (int c : route) {
+            time = Math.max(time + instance.getDistance(prev, c), instance.getReady(c));
+            if (time > instance.getDue(c)) {
+                return false;
+            }
+            time += instance.getService(c);
+            prev = c;
+        }
+        return time + instance.getDistance(prev, 1) <= instance.getDue(1);
+    }
+
+    private static void expect(boolean condition, int trial, String message) {
+        if (!condition) {
+            throw new IllegalStateException("route " + trial + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package src;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * Route-level TSP optimizer working on primitive arrays.
+ *
+ * For one route it combines 2-opt, Or-opt (segments of up to 3 customers, both orientations)
+ * and 3-opt segment insertion (longer segments moved elsewhere in the route, both orientations).
+ * Moves are only tried around candidate edges (a, b) where b is one of the nearest neighbours
+ * of a, and don't-look bits keep the search focused on the part of the route that changed.
+ * Every move is evaluated in O(1) from the changed edges.
+ *
+ * Routes are independent, so optimizeAll runs the optimizer on all routes in parallel
+ * (for solutions large enough to benefit).
+ */
+public class RouteOptimizer {
+    private static final int DEPOT = 1;
+    private static final int OR_OPT_LENGTH = 3;
+    /** below this many customers the fork/join overhead outweighs running routes in parallel */
+    private static final int PARALLEL_THRESHOLD = 1000;
+
+    private final CVRPInstance instance;
+    private final int neighbours;
+    private final int maxSegment;
+    /** nearest customers of every node, built on first use; shared by the threads of optimizeAll */
+    private final AtomicReferenceArray<int[]> nearest;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Constructor with default settings (16 neighbours, segments of up to 32 customers).
+     * @param instance CVRP instance
+     */
+    public RouteOptimizer(CVRPInstance instance) {
+        this(instance, 16, 32);
+    }
+
+    /**
+     * Constructor
+     * @param instance CVRP instance
+     * @param neighbours number of nearest neighbours considered per customer
+     * @param maxSegment maximum length of a segment moved by 3-opt segment insertion
+     */
+    public RouteOptimizer(CVRPInstance instance, int neighbours, int maxSegment) {
+        this.instance = instance;
+        this.neighbours = neighbours;
+        this.maxSegment = Math.max(OR_OPT_LENGTH, maxSegment);
+        this.nearest = new AtomicReferenceArray<>(instance.getNodes() + 1);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(instance.getNodes(), 2 * neighbours));
+    }
+
+    /**
+     * Gets the instance this optimizer was built for.
+     * @return CVRP instance
+     */
+    public CVRPInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Optimizes the customer order of a single route.
+     * @param route route to optimize
+     * @return an improved route, or the same route if no improvement was found
+     */
+    public Route optimize(Route route) {
+        List<Integer> customers = route.getCustomers();
+        int L = customers.size();
+        if (L < 3) {
+            return route;
+        }
+
+        Scratch s = scratch.get();
+        s.ensure(L);
+        int[] t = s.tour;
+        t[0] = DEPOT;
+        t[L + 1] = DEPOT;
+        for (int p = 1; p <= L; p++) {
+            t[p] = customers.get(p - 1);
+            s.pos[t[p]] = p;
+        }
+
+        int total = 0;
+        try {
+            buildCandidates(s, L);
+            ArrayDeque<Integer> queue = s.queue;
+            for (int p = 1; p <= L; p++) {
+                queue.add(t[p]);
+                s.active[t[p]] = true;
+            }
+
+            while (!queue.isEmpty()) {
+                int a = queue.poll();
+                s.active[a] = false;
+                int delta = improveFrom(s, L, a);
+                if (delta < 0) {
+                    total += delta;
+                    // the node itself may allow further moves
+                    activate(s, a);
+                }
+            }
+        } finally {
+            for (int p = 1; p <= L; p++) {
+                s.pos[t[p]] = 0;
+                s.active[t[p]] = false;
+            }
+            s.queue.clear();
+        }
+
+        if (total >= 0) {
+            return route;
+        }
+        List<Integer> seq = new ArrayList<>(L);
+        for (int p = 1; p <= L; p++) {
+            seq.add(t[p]);
+        }
+        return new Route(seq, instance);
+    }
+
+    /**
+     * Optimizes all routes in parallel and replaces the improved ones in the list.
+     * @param routes list of routes in the solution
+     * @return total change in distance (negative if improved)
+     */
+    public int optimizeAll(List<Route> routes) {
+        Route[] result = new Route[routes.size()];
+        int customers = 0;
+        for (Route r : routes) {
+            customers += r.getCustomers().size();
+        }
+        IntStream indices = IntStream.range(0, routes.size());
+        if (customers >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(r -> result[r] = optimize(routes.get(r)));
+
+        int delta = 0;
+        for (int r = 0; r < result.length; r++) {
+            Route old = routes.get(r);
+            if (result[r] != old) {
+                delta += result[r].getDistance(instance) - old.getDistance(instance);
+                routes.set(r, result[r]);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Tries all moves that create an edge between a and one of its candidates and applies
+     * the first improving one.
+     * @return the improvement applied (negative), or 0 if none was found
+     */
+    private int improveFrom(Scratch s, int L, int a) {
+        int[] t = s.tour;
+        int i = s.pos[a];
+        int slot = s.slot[a];
+        int[] cand = s.candidates[slot];
+
+        for (int c = 0; c < s.candidateCount[slot]; c++) {
+            int b = cand[c];
+            int j = s.pos[b];
+            if (j == 0) {
+                continue;
+            }
+
+            // 2-opt, new edges (a, b) and (succ a, succ b) or (pred a, pred b)
+            int delta;
+            if (i < j) {
+                if (j > i + 1) {
+                    delta = d(a, b) + d(t[i + 1], t[j + 1]) - d(a, t[i + 1]) - d(b, t[j + 1]);
+                    if (delta < 0) {
+                        int sa = t[i + 1];
+                        int sb = t[j + 1];
+                        reverse(s, i + 1, j);
+                        activate(s, a, b, sa, sb);
+                        return delta;
+                    }
+                    delta = d(a, b) + d(t[i - 1], t[j - 1]) - d(t[i - 1], a) - d(t[j - 1], b);
+                    if (delta < 0) {
+                        int pa = t[i - 1];
+                        int pb = t[j - 1];
+                        reverse(s, i, j - 1);
+                        activate(s, a, b, pa, pb);
+                        return delta;
+                    }
+                }
+            } else if (i > j + 1) {
+                delta = d(b, a) + d(t[j + 1], t[i + 1]) - d(b, t[j + 1]) - d(a, t[i + 1]);
+                if (delta < 0) {
+                    int sa = t[i + 1];
+                    int sb = t[j + 1];
+                    reverse(s, j + 1, i);
+                    activate(s, a, b, sa, sb);
+                    return delta;
+                }
+                delta = d(b, a) + d(t[j - 1], t[i - 1]) - d(t[j - 1], b) - d(t[i - 1], a);
+                if (delta < 0) {
+                    int pa = t[i - 1];
+                    int pb = t[j - 1];
+                    reverse(s, j, i - 1);
+                    activate(s, a, b, pa, pb);
+                    return delta;
+                }
+            }
+
+            // Or-opt (k <= 3) and 3-opt segment insertion (longer k): move a segment
+            // ending in a next to b, with a adjacent to b
+            int maxK = Math.min(maxSegment, L);
+            for (int k = 1; k <= maxK; k++) {
+                // segment a .. forward
+                if (i + k - 1 <= L) {
+                    delta = trySegmentMove(s, i, i + k - 1, j, false, b);
+                    if (delta < 0) {
+                        return delta;
+                    }
+                    delta = trySegmentMove(s, i, i + k - 1, j - 1, true, b);
+                    if (delta < 0) {
+                        return delta;
+                    }
+                }
+                // segment .. a backward
+                if (k > 1 && i - k + 1 >= 1) {
+                    delta = trySegmentMove(s, i - k + 1, i, j - 1, false, b);
+                    if (delta < 0) {
+                        return delta;
+                    }
+                    delta = trySegmentMove(s, i - k + 1, i, j, true, b);
+                    if (delta < 0) {
+                        return delta;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Evaluates moving the segment t[l..r] between t[u] and t[u + 1], optionally reversed,
+     * and applies it if it improves.
+     * @return the delta if the move was applied, 0 otherwise
+     */
+    private int trySegmentMove(Scratch s, int l, int r, int u, boolean reversed, int b) {
+        if (u >= l - 1 && u <= r) {
+            return 0;
+        }
+        int[] t = s.tour;
+        int first = reversed ? t[r] : t[l];
+        int last = reversed ? t[l] : t[r];
+        int delta = d(t[l - 1], t[r + 1]) - d(t[l - 1], t[l]) - d(t[r], t[r + 1])
+                + d(t[u], first) + d(last, t[u + 1]) - d(t[u], t[u + 1]);
+        if (delta >= 0) {
+            return 0;
+        }
+        activate(s, t[l - 1], t[r + 1], t[u], t[u + 1]);
+        activate(s, t[l], t[r], b, b);
+        moveSegment(s, l, r, u, reversed);
+        return delta;
+    }
+
+    /**
+     * Moves t[l..r] between t[u] and t[u + 1] and updates positions.
+     */
+    private void moveSegment(Scratch s, int l, int r, int u, boolean reversed) {
+        int[] t = s.tour;
+        int[] tmp = s.tmp;
+        int k = r - l + 1;
+        for (int p = 0; p < k; p++) {
+            tmp[p] = reversed ? t[r - p] : t[l + p];
+        }
+
+        int from;
+        int to;
+        if (u > r) {
+            // shift t[r + 1 .. u] left by k, segment goes to u - k + 1
+            System.arraycopy(t, r + 1, t, l, u - r);
+            System.arraycopy(tmp, 0, t, u - k + 1, k);
+            from = l;
+            to = u;
+        } else {
+            // shift t[u + 1 .. l - 1] right by k, segment goes to u + 1
+            System.arraycopy(t, u + 1, t, u + 1 + k, l - u - 1);
+            System.arraycopy(tmp, 0, t, u + 1, k);
+            from = u + 1;
+            to = r;
+        }
+        for (int p = from; p <= to; p++) {
+            s.pos[t[p]] = p;
+        }
+    }
+
+    /**
+     * Reverses t[l..r] and updates positions.
+     */
+    private void reverse(Scratch s, int l, int r) {
+        int[] t = s.tour;
+        for (int lo = l, hi = r; lo < hi; lo++, hi--) {
+            int tmp = t[lo];
+            t[lo] = t[hi];
+            t[hi] = tmp;
+        }
+        for (int p = l; p <= r; p++) {
+            s.pos[t[p]] = p;
+        }
+    }
+
+    /**
+     * Clears the don't-look bits of the given nodes (the depot is ignored).
+     */
+    private void activate(Scratch s, int... nodes) {
+        for (int v : nodes) {
+            if (v != DEPOT && !s.active[v]) {
+                s.active[v] = true;
+                s.queue.add(v);
+            }
+        }
+    }
+
+    /**
+     * Builds the candidate list of every customer in the route: all other customers for short
+     * routes, the nearest neighbours that lie in the route for long ones. Lists are stored in
+     * a slot per customer (its initial position), which stays fixed while the customer moves.
+     */
+    private void buildCandidates(Scratch s, int L) {
+        int[] t = s.tour;
+        for (int p = 1; p <= L; p++) {
+            int a = t[p];
+            int[] cand = s.candidates[p];
+            int count = 0;
+            if (L - 1 <= cand.length) {
+                for (int q = 1; q <= L; q++) {
+                    if (q != p) {
+                        cand[count++] = t[q];
+                    }
+                }
+            } else {
+                for (int b : nearestOf(a)) {
+                    if (s.pos[b] != 0 && count < neighbours) {
+                        cand[count++] = b;
+                    }
+                }
+            }
+            s.candidateCount[p] = count;
+            s.slot[a] = p;
+        }
+    }
+
+    /**
+     * Gets the nearest customers of node a, computed lazily. The list is published through the
+     * atomic array, so routes optimized in parallel see it fully built; two threads may both
+     * build it, and then the first one stored is kept.
+     */
+    private int[] nearestOf(int a) {
+        int[] list = nearest.get(a);
+        if (list != null) {
+            return list;
+        }
+        int n = instance.getNodes();
+        int size = Math.min(4 * neighbours, n - 2);
+        Integer[] all = new Integer[n - 2];
+        int c = 0;
+        for (int v = 2; v <= n; v++) {
+            if (v != a) {
+                all[c++] = v;
+            }
+        }
+        Arrays.sort(all, (x, y) -> Integer.compare(instance.getDistance(a, x), instance.getDistance(a, y)));
+        list = new int[size];
+        for (int k = 0; k < size; k++) {
+            list[k] = all[k];
+        }
+        return nearest.compareAndSet(a, null, list) ? list : nearest.get(a);
+    }
+
+    private int d(int i, int j) {
+        return instance.getDistance(i, j);
+    }
+
+    /**
+     * Per-thread working arrays, sized for the longest route seen so far.
+     */
+    private static class Scratch {
+        final int[] pos;
+        final int[] slot;
+        final boolean[] active;
+        final int width;
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int[] tour = new int[0];
+        int[] tmp = new int[0];
+        int[][] candidates = new int[0][];
+        int[] candidateCount = new int[0];
+
+        Scratch(int nodes, int width) {
+            this.pos = new int[nodes + 1];
+            this.slot = new int[nodes + 1];
+            this.active = new boolean[nodes + 1];
+            this.width = width;
+        }
+
+        void ensure(int L) {
+            if (tour.length < L + 2) {
+                tour = new int[L + 2];
+                tmp = new int[L + 2];
+                candidates = new int[L + 2][width];
+                candidateCount = new int[L + 2];
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Pool of distinct routes collected from the local optima of a GRASP run, for recombination by
+ * set partitioning: the cheapest set of disjoint pooled routes that visits every customer can
+ * beat every solution the routes came from.
+ *
+ * Routes are de-duplicated by customer set (see RouteUtils.customerSetKey), keeping the shortest
+ * sequence of each set. When the pool is full the oldest set is dropped.
+ *
+ * The routes live off-heap in a RouteStore and are read through RouteView flyweights; the heap
+ * only holds a primitive hash index from customer-set key to route id and one bit per stored
+ * route, so large pools put no load on the GC. Replaced and dropped routes stay in the store as
+ * garbage until it holds twice as many routes as are live, and then the live ones are copied
+ * into a fresh store. The pool is thread-safe and empties itself when it is used with another
+ * instance.
+ */
+public class RoutePool {
+    /** number of neighbouring incumbent routes recombined together */
+    private static final int GROUP_ROUTES = 6;
+    /** stores with fewer records are never compacted */
+    private static final int MIN_COMPACT_SIZE = 1024;
+
+    private final int capacity;
+    private CVRPInstance instance;
+    private RouteStore store;
+    private RouteView view;
+    /** ids of the live routes in the store */
+    private final BitSet live = new BitSet();
+    private int liveCount = 0;
+    /** lowest id that may still be live */
+    private int oldest = 0;
+    private SetIndex index = new SetIndex();
+
+    /**
+     * Open-addressing hash table from customer-set key to route id (linear probing,
+     * backward-shift deletion), on two primitive arrays.
+     */
+    static final class SetIndex {
+        long[] keys = new long[64];
+        int[] ids = new int[64];
+        int size = 0;
+
+        SetIndex() {
+            Arrays.fill(ids, -1);
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int s = (int) RandomStreams.mix64(key) & mask;
+            while (ids[s] != -1 && keys[s] != key) {
+                s = (s + 1) & mask;
+            }
+            return s;
+        }
+
+        int get(long key) {
+            return ids[slot(key)];
+        }
+
+        void put(long key, int id) {
+            int s = slot(key);
+            if (ids[s] == -1) {
+                size++;
+            }
+            keys[s] = key;
+            ids[s] = id;
+            if (2 * size > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldIds = ids;
+                keys = new long[2 * oldKeys.length];
+                ids = new int[2 * oldIds.length];
+                Arrays.fill(ids, -1);
+                for (int k = 0; k < oldKeys.length; k++) {
+                    if (oldIds[k] != -1) {
+                        int t = slot(oldKeys[k]);
+                        keys[t] = oldKeys[k];
+                        ids[t] = oldIds[k];
+                    }
+                }
+            }
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int s = slot(key);
+            if (ids[s] == -1) {
+                return;
+            }
+            ids[s] = -1;
+            size--;
+            // move later entries of the probe sequence into the gap
+            for (int t = (s + 1) & mask; ids[t] != -1; t = (t + 1) & mask) {
+                int home = (int) RandomStreams.mix64(keys[t]) & mask;
+                if (((t - home) & mask) >= ((t - s) & mask)) {
+                    keys[s] = keys[t];
+                    ids[s] = ids[t];
+                    ids[t] = -1;
+                    s = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor
+     * @param capacity maximum number of pooled routes
+     */
+    public RoutePool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a route, or replaces the pooled sequence of its customer set if the route is shorter.
+     * @param route route to add
+     * @param instance CVRP instance
+     * @return true if the pool changed
+     */
+    public synchronized boolean add(Route route, CVRPInstance instance) {
+        List<Integer> customers = route.getCustomers();
+        if (customers.isEmpty()) {
+            return false;
+        }
+        useInstance(instance);
+        long key = RouteUtils.customerSetKey(customers);
+        int distance = route.getDistance(instance);
+        int pooled = index.get(key);
+        if (pooled != -1) {
+            view.moveTo(pooled);
+            if (view.getDistance() <= distance || !RouteUtils.sameCustomerSet(view.toArray(), customers)) {
+                // a different set with the same key keeps its place; the new one is not pooled
+                return false;
+            }
+            live.clear(pooled);
+            liveCount--;
+        }
+        int id = store.add(customers, distance);
+        live.set(id);
+        liveCount++;
+        index.put(key, id);
+
+        while (liveCount > capacity) {
+            oldest = live.nextSetBit(oldest);
+            index.remove(RouteUtils.customerSetKey(view.moveTo(oldest)));
+            live.clear(oldest);
+            liveCount--;
+        }
+        if (store.size() >= MIN_COMPACT_SIZE && store.size() > 2 * liveCount) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Adds all routes of a solution.
+     * @param sol solution, typically a VND local optimum
+     * @param instance CVRP instance
+     */
+    public synchronized void addAll(CVRPSolution sol, CVRPInstance instance) {
+        for (Route r : sol.getRoutes()) {
+            add(r, instance);
+        }
+    }
+
+    /**
+     * Copies the live routes into a new store, dropping the garbage, and rebuilds the index.
+     */
+    private void compact() {
+        RouteStore compacted = new RouteStore(instance.getNodes());
+        SetIndex compactedIndex = new SetIndex();
+        for (int id = live.nextSetBit(0); id >= 0; id = live.nextSetBit(id + 1)) {
+            view.moveTo(id);
+            compactedIndex.put(RouteUtils.customerSetKey(view), compacted.add(view));
+        }
+        store = compacted;
+        view = new RouteView(store);
+        index = compactedIndex;
+        live.clear();
+        live.set(0, store.size());
+        liveCount = store.size();
+        oldest = 0;
+    }
+
+    /**
+     * Gets the number of pooled routes.
+     * @return pool size
+     */
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * Gets the off-heap memory allocated for the pooled routes.
+     * @return off-heap bytes of the store
+     */
+    public synchronized long getOffHeapBytes() {
+        return store == null ? 0 : store.getAllocatedBytes();
+    }
+
+    /**
+     * Estimates the heap memory of the pool besides object headers.
+     * @return heap bytes of the record table, the index and the live bits
+     */
+    public synchronized long getHeapBytes() {
+        return store == null ? 0 : store.getHeapBytes() + 12L * index.keys.length + live.size() / 8;
+    }
+
+    /**
+     * Gets a one-line summary of the pool size and footprint.
+     * @return live and stored routes and estimated memory
+     */
+    public synchronized String summary() {
+        return String.format("Route pool: %d routes (%d stored), %.2f MB off-heap, %.2f MB heap",
+                liveCount, store == null ? 0 : store.size(), getOffHeapBytes() / 1048576.0, getHeapBytes() / 1048576.0);
+    }
+
+    /**
+     * Empties the pool.
+     */
+    public synchronized void clear() {
+        if (store != null) {
+            store.clear();
+        }
+        live.clear();
+        liveCount = 0;
+        oldest = 0;
+        index = new SetIndex();
+    }
+
+    /**
+     * Recombines the pooled routes with the incumbent. Every route of the incumbent is taken in
+     * turn together with its nearest routes (by centroid); the cheapest set of disjoint pooled
+     * routes that visits exactly the customers of that group is searched with SetPartitioning and
+     * replaces the group if it is shorter. Small groups keep every problem exact and fast, where
+     * covers of all customers from the whole pool are rare and hard to find.
+     * @param instance CVRP instance
+     * @param incumbent best known solution; its routes are added to the pool first
+     * @param nodeLimit search node limit of the branch-and-bound of one group
+     * @return a solution shorter than the incumbent, or null if none was found
+     */
+    public CVRPSolution recombine(CVRPInstance instance, CVRPSolution incumbent, long nodeLimit) {
+        addAll(incumbent, instance);
+
+        List<Route> current = new ArrayList<>();
+        for (Route r : incumbent.getRoutes()) {
+            if (!r.getCustomers().isEmpty()) {
+                current.add(r);
+            }
+        }
+        int[] mark = new int[instance.getNodes() + 1];
+        int stamp = 0;
+        boolean improved = false;
+        for (int seed = 0; seed < current.size(); seed++) {
+            List<Integer> group = nearestRoutes(current, seed, GROUP_ROUTES, instance);
+            stamp++;
+            int groupCost = 0;
+            List<Integer> groupCustomers = new ArrayList<>();
+            for (int g : group) {
+                groupCost += current.get(g).getDistance(instance);
+                for (int c : current.get(g).getCustomers()) {
+                    mark[c] = stamp;
+                    groupCustomers.add(c);
+                }
+            }
+
+            // pooled routes within the customers of the group, copied since the branch-and-bound
+            // reads its few columns over and over
+            List<int[]> columns = new ArrayList<>();
+            List<Integer> costs = new ArrayList<>();
+            synchronized (this) {
+                if (this.instance != instance) {
+                    return null;
+                }
+                for (int id = live.nextSetBit(oldest); id >= 0; id = live.nextSetBit(id + 1)) {
+                    view.moveTo(id);
+                    if (view.size() <= groupCustomers.size() && within(view, mark, stamp)) {
+                        columns.add(view.toArray());
+                        costs.add(view.getDistance());
+                    }
+                }
+            }
+            int[] chosen = new SetPartitioning(columns, costs.stream().mapToInt(Integer::intValue).toArray(),
+                    groupCustomers.stream().mapToInt(Integer::intValue).toArray(), instance.getNodes())
+                    .solve(groupCost, nodeLimit);
+            if (chosen == null) {
+                continue;
+            }
+
+            group.sort(null);
+            for (int k = group.size() - 1; k >= 0; k--) {
+                current.remove((int) group.get(k));
+            }
+            for (int r : chosen) {
+                List<Integer> customers = new ArrayList<>(columns.get(r).length);
+                for (int c : columns.get(r)) {
+                    customers.add(c);
+                }
+                current.add(new Route(customers, instance));
+            }
+            improved = true;
+        }
+        return improved ? new CVRPSolution(current) : null;
+    }
+
+    private static boolean within(RouteView route, int[] mark, int stamp) {
+        for (int i = 0; i < route.size(); i++) {
+            if (mark[route.get(i)] != stamp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds a route and its nearest routes by the distance between their centroids.
+     * @return indices of the routes, the seed first
+     */
+    private static List<Integer> nearestRoutes(List<Route> routes, int seed, int count, CVRPInstance instance) {
+        double[] cx = new double[routes.size()];
+        double[] cy = new double[routes.size()];
+        for (int r = 0; r < routes.size(); r++) {
+            for (int c : routes.get(r).getCustomers()) {
+                cx[r] += instance.getX(c);
+                cy[r] += instance.getY(c);
+            }
+            cx[r] /= routes.get(r).getCustomers().size();
+            cy[r] /= routes.get(r).getCustomers().size();
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int r = 0; r < routes.size(); r++) {
+            order.add(r);
+        }
+        order.sort((a, b) -> Double.compare(Math.hypot(cx[a] - cx[seed], cy[a] - cy[seed]),
+                Math.hypot(cx[b] - cx[seed], cy[b] - cy[seed])));
+        return new ArrayList<>(order.subList(0, Math.min(count, order.size())));
+    }
+
+    private void useInstance(CVRPInstance instance) {
+        if (this.instance != instance) {
+            this.instance = instance;
+            store = new RouteStore(instance.getNodes());
+            view = new RouteView(store);
+            live.clear();
+            liveCount = 0;
+            oldest = 0;
+            index = new SetIndex();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package src;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only off-heap store of routes, for pools of millions of routes without GC pressure.
+ *
+ * A route is one packed record in a direct ByteBuffer: its distance and length as ints, then its
+ * customers as unsigned shorts (instances of up to 65535 nodes) or ints. That is 8 bytes plus 2
+ * per visit, against about 20 bytes per visit of a Route (boxed Integers in an ArrayList) and
+ * its headers. Records are filled into chunks of a fixed size and never move; the only heap
+ * structure is one long per route locating its record.
+ *
+ * Routes are read without copying through a RouteView. The store is not thread-safe: writers
+ * must be synchronized with each other and with readers.
+ */
+public class RouteStore {
+    /** default chunk size: 1 MB */
+    private static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    /** bytes of the record header: distance and length */
+    private static final int HEADER_BYTES = 8;
+
+    private final int width;
+    private final int chunkBytes;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    /** per route: chunk index in the high 32 bits, byte offset in the low 32 bits */
+    private long[] records = new long[1024];
+    private int size = 0;
+
+    /**
+     * Constructor
+     * @param nodes number of nodes of the instance, which sets the width of a customer index
+     */
+    public RouteStore(int nodes) {
+        this(nodes, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Constructor
+     * @param nodes number of nodes of the instance, which sets the width of a customer index
+     * @param chunkBytes size of the off-heap chunks
+     */
+    public RouteStore(int nodes, int chunkBytes) {
+        if (chunkBytes < HEADER_BYTES) {
+            throw new IllegalArgumentException("chunkBytes must be at least " + HEADER_BYTES);
+        }
+        this.width = nodes <= 0xFFFF ? Short.BYTES : Integer.BYTES;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Appends a route.
+     * @param customers customers in visiting order
+     * @param distance route distance
+     * @return id of the route, consecutive from 0
+     */
+    public int add(List<Integer> customers, int distance) {
+        ByteBuffer chunk = reserve(customers.size());
+        int pos = chunk.position();
+        chunk.putInt(pos, distance);
+        chunk.putInt(pos + 4, customers.size());
+        pos += HEADER_BYTES;
+        for (int c : customers) {
+            pos = putCustomer(chunk, pos, c);
+        }
+        return commit(chunk, pos);
+    }
+
+    /**
+     * Appends a route.
+     * @param customers customers in visiting order
+     * @param distance route distance
+     * @return id of the route, consecutive from 0
+     */
+    public int add(int[] customers, int distance) {
+        ByteBuffer chunk = reserve(customers.length);
+        int pos = chunk.position();
+        chunk.putInt(pos, distance);
+        chunk.putInt(pos + 4, customers.length);
+        pos += HEADER_BYTES;
+        for (int c : customers) {
+            pos = putCustomer(chunk, pos, c);
+        }
+        return commit(chunk, pos);
+    }
+
+    /**
+     * Appends a stored route, e.g. of another store when compacting.
+     * @param route view of the route
+     * @return id of the route in this store
+     */
+    public int add(RouteView route) {
+        ByteBuffer chunk = reserve(route.size());
+        int pos = chunk.position();
+        chunk.putInt(pos, route.getDistance());
+        chunk.putInt(pos + 4, route.size());
+        pos += HEADER_BYTES;
+        for (int i = 0; i < route.size(); i++) {
+            pos = putCustomer(chunk, pos, route.get(i));
+        }
+        return commit(chunk, pos);
+    }
+
+    /**
+     * Finds a chunk with room for a record of the given length, allocating one if needed.
+     */
+    private ByteBuffer reserve(int length) {
+        int bytes = HEADER_BYTES + length * width;
+        ByteBuffer last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (last == null || last.remaining() < bytes) {
+            last = ByteBuffer.allocateDirect(Math.max(chunkBytes, bytes)).order(ByteOrder.nativeOrder());
+            chunks.add(last);
+        }
+        if (size == records.length) {
+            records = Arrays.copyOf(records, 2 * size);
+        }
+        return last;
+    }
+
+    private int putCustomer(ByteBuffer chunk, int pos, int customer) {
+        if (width == Short.BYTES) {
+            chunk.putShort(pos, (short) customer);
+        } else {
+            chunk.putInt(pos, customer);
+        }
+        return pos + width;
+    }
+
+    private int commit(ByteBuffer chunk, int end) {
+        int start = chunk.position();
+        records[size] = ((long) (chunks.size() - 1) << 32) | start;
+        chunk.position(end);
+        return size++;
+    }
+
+    /**
+     * Gets the number of stored routes.
+     * @return number of routes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the off-heap bytes allocated, including the unused ends of the chunks.
+     * @return allocated off-heap bytes
+     */
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the heap bytes of the record index.
+     * @return heap bytes besides the object headers
+     */
+    public long getHeapBytes() {
+        return 8L * records.length;
+    }
+
+    /**
+     * Removes all routes. The first chunk is kept for reuse; the others are released to the GC.
+     */
+    public void clear() {
+        if (chunks.size() > 1) {
+            chunks.subList(1, chunks.size()).clear();
+        }
+        if (!chunks.isEmpty()) {
+            chunks.get(0).clear();
+        }
+        size = 0;
+    }
+
+    // accessors for RouteView
+
+    ByteBuffer chunk(int id) {
+        checkId(id);
+        return chunks.get((int) (records[id] >>> 32));
+    }
+
+    int offset(int id) {
+        return (int) records[id];
+    }
+
+    int width() {
+        return width;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Route " + id + " not in store of " + size + " routes");
+        }
+    }
+}
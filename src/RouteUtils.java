@@ -1,5 +1,6 @@
 package src;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -7,7 +8,138 @@ import java.util.List;
  */
 public class RouteUtils {
     public static int computeRouteDistance(List<Integer> customers, CVRPInstance instance) {
-        Route routeCurr = new Route(customers, instance);
+        return computeRouteDistance(customers, instance, 1);
+    }
+
+    /**
+     * Computes the distance of a customer sequence that starts and ends at the given depot.
+     * @param customers customers in visiting order
+     * @param instance CVRP instance
+     * @param depot depot node
+     * @return route distance
+     */
+    public static int computeRouteDistance(List<Integer> customers, CVRPInstance instance, int depot) {
+        Route routeCurr = new Route(customers, instance, depot);
         return routeCurr.getDistance(instance);
     }
+
+    /**
+     * Converts a customer list to a tour array with the depot (node 1) at both ends.
+     * @param customers customers in visiting order
+     * @return array of length size + 2
+     */
+    public static int[] toTour(List<Integer> customers) {
+        return toTour(customers, 1);
+    }
+
+    /**
+     * Converts a customer list to a tour array with the given depot at both ends.
+     * @param customers customers in visiting order
+     * @param depot depot node
+     * @return array of length size + 2
+     */
+    public static int[] toTour(List<Integer> customers, int depot) {
+        int[] tour = new int[customers.size() + 2];
+        tour[0] = depot;
+        tour[tour.length - 1] = depot;
+        for (int p = 0; p < customers.size(); p++) {
+            tour[p + 1] = customers.get(p);
+        }
+        return tour;
+    }
+
+    /**
+     * Improves a tour with 2-opt: reverses tour[i..j] while that shortens it, to a local optimum.
+     * @param tour tour with the depot at both ends, see toTour; changed in place
+     * @param instance CVRP instance
+     */
+    public static void twoOpt(int[] tour, CVRPInstance instance) {
+        int size = tour.length - 2;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < size; i++) {
+                for (int j = i + 1; j <= size; j++) {
+                    int delta = instance.getDistance(tour[i - 1], tour[j]) + instance.getDistance(tour[i], tour[j + 1])
+                            - instance.getDistance(tour[i - 1], tour[i]) - instance.getDistance(tour[j], tour[j + 1]);
+                    if (delta < 0) {
+                        for (int l = i, r = j; l < r; l++, r--) {
+                            int tmp = tour[l];
+                            tour[l] = tour[r];
+                            tour[r] = tmp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the cost of inserting a customer at every position of a tour in one pass:
+     * out[p] = d(tour[p], c) + d(c, tour[p + 1]) - d(tour[p], tour[p + 1]) for p = 0..size,
+     * i.e. out[p] is the cost of making c the p-th customer (0-based).
+     * @param tour tour with the depot at both ends, see toTour
+     * @param size number of customers in the tour
+     * @param customer customer to insert
+     * @param instance CVRP instance
+     * @param out output array of length at least size + 1
+     */
+    public static void insertionCosts(int[] tour, int size, int customer, CVRPInstance instance, int[] out) {
+        int[] fromC = instance.getDistanceRow(customer);
+        for (int p = 0; p <= size; p++) {
+            int a = tour[p];
+            int b = tour[p + 1];
+            out[p] = fromC[a] + fromC[b] - instance.getDistanceRow(a)[b];
+        }
+    }
+
+    /**
+     * Computes an order-independent 64-bit hash of a set of customers (a sum of mixed customer
+     * indices), so that two routes visiting the same customers get the same key. Equal keys of
+     * different sets are unlikely but possible; users must confirm matches.
+     * @param customers customers of a route, without duplicates
+     * @return the key
+     */
+    public static long customerSetKey(List<Integer> customers) {
+        long key = customers.size();
+        for (int c : customers) {
+            key += RandomStreams.mix64(c);
+        }
+        return key;
+    }
+
+    /**
+     * Computes the key of the customer set of a stored route, equal to customerSetKey of the
+     * same customers as a list.
+     * @param route view of a stored route
+     * @return the key
+     */
+    public static long customerSetKey(RouteView route) {
+        long key = route.size();
+        for (int i = 0; i < route.size(); i++) {
+            key += RandomStreams.mix64(route.get(i));
+        }
+        return key;
+    }
+
+    /**
+     * Checks whether a customer sequence and a customer list hold the same customers.
+     * @param sequence customers in any order
+     * @param customers customers in any order
+     * @return true if both contain the same customers
+     */
+    public static boolean sameCustomerSet(int[] sequence, List<Integer> customers) {
+        if (sequence.length != customers.size()) {
+            return false;
+        }
+        int[] a = sequence.clone();
+        int[] b = new int[customers.size()];
+        for (int k = 0; k < b.length; k++) {
+            b[k] = customers.get(k);
+        }
+        Arrays.sort(a);
+        Arrays.sort(b);
+        return Arrays.equals(a, b);
+    }
 }
@@ -0,0 +1,83 @@
+package src;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight read-only view of a route in a RouteStore. It reads the customers straight from
+ * the off-heap record without copying, and can be moved to another route, so that scanning a
+ * pool of any size allocates a single view.
+ */
+public final class RouteView {
+    private final RouteStore store;
+    private final boolean shortIndices;
+    private ByteBuffer chunk;
+    private int base;
+    private int length;
+    private int distance;
+
+    /**
+     * Constructor
+     * @param store store to read from; the view must be positioned with moveTo before use
+     */
+    public RouteView(RouteStore store) {
+        this.store = store;
+        this.shortIndices = store.width() == Short.BYTES;
+    }
+
+    /**
+     * Positions the view on a route.
+     * @param id route id in the store
+     * @return this view
+     */
+    public RouteView moveTo(int id) {
+        this.chunk = store.chunk(id);
+        int offset = store.offset(id);
+        this.distance = chunk.getInt(offset);
+        this.length = chunk.getInt(offset + 4);
+        this.base = offset + 8;
+        return this;
+    }
+
+    /**
+     * Gets the number of customers of the route.
+     * @return route length
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Gets a customer of the route.
+     * @param index position in the route (0 = first customer)
+     * @return customer index
+     */
+    public int get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " in route of " + length + " customers");
+        }
+        if (shortIndices) {
+            return Short.toUnsignedInt(chunk.getShort(base + 2 * index));
+        }
+        return chunk.getInt(base + 4 * index);
+    }
+
+    /**
+     * Gets the distance stored with the route.
+     * @return route distance
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Copies the customers to an array.
+     * @return new array of the customers in visiting order
+     */
+    public int[] toArray() {
+        int[] customers = new int[length];
+        for (int i = 0; i < length; i++) {
+            customers[i] = get(i);
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,174 @@
+package src;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how the run time and memory of the main stages grow with the instance size, on
+ * synthetic instances from InstanceGenerator (uniform layout, central depot, 20 customers per route).
+ *
+ * Stages: building the instance (distance matrix), the greedy savings heuristic, GRASP's
+ * randomized savings construction, the bin-packing construction and VND on the bin-packing
+ * solution. For every stage the growth exponent between consecutive sizes is reported
+ * (time ~ n^exponent). A stage is skipped at a size when the time extrapolated from the previous
+ * size exceeds the time budget, or when its estimated memory does not fit in the free heap.
+ *
+ * Usage: ScalingBenchmark [budgetSeconds [sizes...]], default 60 s and 100 1000 5000 20000.
+ * The 20000-node distance matrix alone takes 1.6 GB, so run with e.g. -Xmx6g to include that size.
+ */
+public class ScalingBenchmark {
+    private static final long SEED = 42;
+
+    /**
+     * One benchmarked stage.
+     */
+    private interface StageRun {
+        CVRPSolution run(CVRPInstance instance, CVRPSolution packed);
+    }
+
+    private static final class Stage {
+        final String name;
+        /** estimated bytes allocated per (n + 1)^2 */
+        final double bytesPerPair;
+        final StageRun run;
+        /** growth exponent: assumed until two sizes have been measured */
+        double exponent;
+        int lastNodes = 0;
+        double lastMillis = 0;
+
+        Stage(String name, double exponent, double bytesPerPair, StageRun run) {
+            this.name = name;
+            this.exponent = exponent;
+            this.bytesPerPair = bytesPerPair;
+            this.run = run;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        double budgetMillis = args.length > 0 ? Double.parseDouble(args[0]) * 1000 : 60_000;
+        int[] sizes = {100, 1000, 5000, 20000};
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int k = 1; k < args.length; k++) {
+                sizes[k - 1] = Integer.parseInt(args[k]);
+            }
+        }
+
+        GRASP grasp = new GRASP(0.3);
+        List<Stage> stages = new ArrayList<>();
+        // the savings constructions keep a 24-byte Saving object and a list slot per customer pair
+        stages.add(new Stage("Savings", 2.2, 20, (inst, packed) -> new SavingsHeuristic().construct(inst)));
+        stages.add(new Stage("Rand. savings", 3.0, 20, (inst, packed) -> grasp.constructInitalSol(inst, new Random(SEED))));
+        stages.add(new Stage("Bin-packing", 2.0, 0, (inst, packed) -> new BinPackingHeuristic(0.3).construct(inst)));
+        stages.add(new Stage("VND", 3.0, 0, (inst, packed) -> packed == null ? null : new VND().solve(packed.copy(), inst)));
+
+        InstanceGenerator generator = new InstanceGenerator(InstanceGenerator.Layout.UNIFORM,
+                InstanceGenerator.DepotPosition.CENTRAL, 20);
+        System.out.printf("%-14s %7s %12s %10s %9s %10s%n", "stage", "n", "time [ms]", "heap [MB]", "exponent", "cost");
+
+        Stage matrix = new Stage("Instance", 2.0, 4, null);
+        for (int n : sizes) {
+            long matrixBytes = (long) (matrix.bytesPerPair * (n + 1.0) * (n + 1.0));
+            if (matrixBytes > freeHeap()) {
+                System.out.printf("%-14s %7d  skipped: distance matrix needs %d MB, %d MB free%n",
+                        matrix.name, n, matrixBytes >> 20, freeHeap() >> 20);
+                continue;
+            }
+            long base = startMeasurement();
+            long t0 = System.nanoTime();
+            CVRPInstance inst = generator.generate(n, SEED);
+            report(matrix, n, (System.nanoTime() - t0) / 1e6, peakHeap() - base, -1);
+
+            CVRPSolution packed = null;
+            for (Stage stage : stages) {
+                String skip = skipReason(stage, n, budgetMillis);
+                if (stage.name.equals("VND") && packed == null) {
+                    skip = "no bin-packing solution";
+                }
+                if (skip != null) {
+                    System.out.printf("%-14s %7d  skipped: %s%n", stage.name, n, skip);
+                    continue;
+                }
+                base = startMeasurement();
+                t0 = System.nanoTime();
+                CVRPSolution sol = stage.run.run(inst, packed);
+                double millis = (System.nanoTime() - t0) / 1e6;
+                report(stage, n, millis, peakHeap() - base, sol == null ? -1 : sol.getTotalDistance(inst));
+                if (stage.name.equals("Bin-packing")) {
+                    packed = sol;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decides whether a stage is too slow or too large for a size.
+     * @return reason to skip, or null to run it
+     */
+    private static String skipReason(Stage stage, int n, double budgetMillis) {
+        long bytes = (long) (stage.bytesPerPair * (n + 1.0) * (n + 1.0));
+        if (bytes > freeHeap()) {
+            return String.format("needs about %d MB, %d MB free", bytes >> 20, freeHeap() >> 20);
+        }
+        if (stage.lastNodes > 0) {
+            double predicted = stage.lastMillis * Math.pow((double) n / stage.lastNodes, stage.exponent);
+            if (predicted > budgetMillis) {
+                return String.format("predicted %.0f s exceeds the %.0f s budget", predicted / 1e3, budgetMillis / 1e3);
+            }
+        }
+        return null;
+    }
+
+    private static void report(Stage stage, int n, double millis, long heapBytes, long cost) {
+        String exponent = "";
+        if (stage.lastNodes > 0 && stage.lastMillis > 0 && millis > 0) {
+            double measured = Math.log(millis / stage.lastMillis) / Math.log((double) n / stage.lastNodes);
+            exponent = String.format("%.2f", measured);
+            // timings of tiny instances are noisy: never extrapolate with less than quadratic growth
+            stage.exponent = Math.max(measured, 2.0);
+        }
+        System.out.printf("%-14s %7d %12.1f %10.1f %9s %10s%n", stage.name, n, millis, Math.max(0, heapBytes) / 1048576.0,
+                exponent, cost < 0 ? "" : Long.toString(cost));
+        stage.lastNodes = n;
+        stage.lastMillis = millis;
+    }
+
+    /**
+     * Collects garbage and resets the peak usage of the heap pools.
+     * @return heap in use at the start of the measurement
+     */
+    private static long startMeasurement() {
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Sums the peak usage of the heap pools since the last startMeasurement (an upper
+     * estimate of the peak heap, as the pools need not peak at the same moment).
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long freeHeap() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+    }
+}
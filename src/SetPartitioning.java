@@ -0,0 +1,223 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Depth-first branch-and-bound for the set-partitioning problem over a pool of routes: choose
+ * disjoint routes that together visit every customer exactly once at minimum total distance.
+ *
+ * Branching takes the uncovered customer with the fewest routes that still fit (none: a dead
+ * end) and tries those routes in order of increasing distance per customer, so the first dives
+ * already give good covers. As in Knuth's Algorithm X, the number of fitting routes of every
+ * customer is updated incrementally when a route is chosen or dropped.
+ *
+ * The bound splits the distance of every route evenly over its customers: covering the
+ * uncovered customers costs at least the sum of their cheapest shares in routes that still fit.
+ * The search stops after a node limit and then returns the best cover found, which need not
+ * be optimal. It is exact and fast on small problems, e.g. the customers of a few neighbouring
+ * routes, and meant for those: over a large pool full covers are rare and hard to find.
+ */
+public class SetPartitioning {
+    /** distances are integers: a better cover is at least 1 cheaper; this absorbs rounding of the bound */
+    private static final double EPSILON = 1e-6;
+
+    private final int[][] columns;
+    private final int[] costs;
+    /** distance per customer of every route */
+    private final double[] share;
+    /** routes containing each customer, by increasing share */
+    private final int[][] routesOf;
+    private final int[] customers;
+
+    // search state
+    private final boolean[] covered;
+    /** number of covered customers of every route: it fits if 0 */
+    private final int[] blocked;
+    /** number of fitting routes of every customer */
+    private final int[] fitting;
+    private final int[] chosen;
+    private int depth;
+    private long nodes;
+    private long nodeLimit;
+    private int bestCost;
+    private int[] best;
+
+    /**
+     * Constructor
+     * @param columns customers of every route, all of them among the customers to cover
+     * @param costs distance of every route
+     * @param customers customers to cover
+     * @param nodes number of nodes of the instance, including the depot
+     */
+    public SetPartitioning(List<int[]> columns, int[] costs, int[] customers, int nodes) {
+        this.columns = columns.toArray(new int[0][]);
+        this.costs = costs.clone();
+        this.share = new double[this.columns.length];
+        this.covered = new boolean[nodes + 1];
+        this.blocked = new int[this.columns.length];
+        this.fitting = new int[nodes + 1];
+        this.chosen = new int[customers.length];
+        this.customers = customers.clone();
+
+        List<List<Integer>> lists = new ArrayList<>();
+        for (int i = 0; i <= nodes; i++) {
+            lists.add(new ArrayList<>());
+        }
+        for (int r = 0; r < this.columns.length; r++) {
+            share[r] = (double) costs[r] / this.columns[r].length;
+            for (int c : this.columns[r]) {
+                lists.get(c).add(r);
+            }
+        }
+        this.routesOf = new int[nodes + 1][];
+        for (int c : customers) {
+            List<Integer> list = lists.get(c);
+            list.sort((a, b) -> Double.compare(share[a], share[b]));
+            routesOf[c] = list.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Searches for a cover cheaper than a given bound.
+     * @param upperBound distance to beat, e.g. of the best known solution
+     * @param nodeLimit maximum number of search nodes
+     * @return indices of the chosen routes, or null if no cheaper cover was found
+     */
+    public int[] solve(int upperBound, long nodeLimit) {
+        Arrays.fill(covered, false);
+        Arrays.fill(blocked, 0);
+        for (int c : customers) {
+            fitting[c] = routesOf[c].length;
+        }
+        this.nodeLimit = nodeLimit;
+        this.nodes = 0;
+        this.depth = 0;
+        this.bestCost = upperBound;
+        this.best = null;
+        branch(0);
+        return best;
+    }
+
+    /**
+     * Gets the number of search nodes of the last solve.
+     * @return nodes explored
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Checks whether the last solve searched the whole tree, i.e. its result is optimal.
+     * @return true if the node limit was not reached
+     */
+    public boolean isComplete() {
+        return nodes < nodeLimit;
+    }
+
+    /**
+     * Extends the partial cover.
+     * @param cost distance of the chosen routes
+     */
+    private void branch(int cost) {
+        if (++nodes >= nodeLimit) {
+            return;
+        }
+
+        // the uncovered customer with the fewest routes that still fit, and the bound
+        int branchCustomer = -1;
+        int fewest = Integer.MAX_VALUE;
+        double bound = 0;
+        for (int c : customers) {
+            if (covered[c]) {
+                continue;
+            }
+            if (fitting[c] == 0) {
+                return;
+            }
+            bound += cheapestShare(c);
+            if (fitting[c] < fewest) {
+                fewest = fitting[c];
+                branchCustomer = c;
+            }
+        }
+        if (branchCustomer == -1) {
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = Arrays.copyOf(chosen, depth);
+            }
+            return;
+        }
+        if (cost + bound > bestCost - 1 + EPSILON) {
+            return;
+        }
+
+        for (int r : routesOf[branchCustomer]) {
+            if (nodes >= nodeLimit) {
+                return;
+            }
+            if (blocked[r] > 0) {
+                continue;
+            }
+            // the shares of the other customers can only grow once r is chosen
+            double routeBound = bound;
+            for (int c : columns[r]) {
+                routeBound -= cheapestShare(c);
+            }
+            if (cost + costs[r] + routeBound > bestCost - 1 + EPSILON) {
+                continue;
+            }
+            cover(r);
+            chosen[depth++] = r;
+            branch(cost + costs[r]);
+            depth--;
+            uncover(r);
+        }
+    }
+
+    /**
+     * Gets the smallest share of an uncovered customer over its routes that still fit.
+     */
+    private double cheapestShare(int c) {
+        for (int r : routesOf[c]) {
+            if (blocked[r] == 0) {
+                return share[r];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Marks the customers of a route as covered and the routes sharing a customer with it as
+     * no longer fitting.
+     */
+    private void cover(int r) {
+        for (int c : columns[r]) {
+            covered[c] = true;
+            for (int other : routesOf[c]) {
+                if (blocked[other]++ == 0) {
+                    for (int d : columns[other]) {
+                        fitting[d]--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reverts cover(r).
+     */
+    private void uncover(int r) {
+        for (int c : columns[r]) {
+            covered[c] = false;
+            for (int other : routesOf[c]) {
+                if (--blocked[other] == 0) {
+                    for (int d : columns[other]) {
+                        fitting[d]++;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package src;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * Migration channel that talks to a MigrationHub over TCP, so islands can run
+ * as separate processes, locally or on other machines. The hub must serve the same instance.
+ */
+public class SocketMigrationChannel implements MigrationChannel {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int maxFrameBytes;
+    private ByteBuffer buf = ByteBuffer.allocateDirect(1 << 12);
+
+    /**
+     * Connects to a hub.
+     * @param host hub host name
+     * @param port hub port
+     * @param instance instance the islands solve
+     * @throws IOException if the hub cannot be reached or serves another instance
+     */
+    public SocketMigrationChannel(String host, int port, CVRPInstance instance) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.maxFrameBytes = BinaryFormat.maxSolutionFrameBytes(instance.getNodes());
+        try {
+            out.writeByte(MigrationHub.HELLO);
+            out.writeLong(MigrationHub.fingerprint(instance));
+            out.flush();
+            in.readInt();
+        } catch (IOException e) {
+            socket.close();
+            throw new IOException("Migration hub at " + host + ":" + port + " does not serve this instance", e);
+        }
+    }
+
+    @Override
+    public synchronized void publish(int island, CVRPSolution sol, int cost) throws IOException {
+        buf.clear();
+        buf = BinaryFormat.encodeSolution(sol, buf);
+        buf.flip();
+        byte[] frame = new byte[buf.remaining()];
+        buf.get(frame);
+
+        out.writeByte(MigrationHub.PUBLISH);
+        out.writeInt(island);
+        out.writeInt(cost);
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+        in.readInt();
+    }
+
+    @Override
+    public synchronized int bestCost() throws IOException {
+        out.writeByte(MigrationHub.COST);
+        out.flush();
+        return in.readInt();
+    }
+
+    @Override
+    public synchronized CVRPSolution fetchBest(CVRPInstance instance) throws IOException {
+        out.writeByte(MigrationHub.FETCH);
+        out.flush();
+        in.readInt();
+        int length = in.readInt();
+        if (length < 0 || length > maxFrameBytes) {
+            throw new IOException("Migration hub sent a frame of " + length + " bytes");
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        if (frame.length == 0) {
+            return null;
+        }
+        BinaryFormat.SolutionInput decoder = new BinaryFormat.SolutionInput(Channels.newChannel(new ByteArrayInputStream(frame)));
+        return decoder.read(instance);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,204 @@
+package src;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Self-check of the solution files, run as a program since the project has no test framework.
+ * Random solutions with empty routes at the start, in the middle and at the end are written
+ * with SolutionWriter and SolutionStreamWriter (text, sync and async, truncating and appending)
+ * and read back with SolutionReader; every solution must come back with the same non-empty
+ * routes in the same order, each from the same depot (some instances have several depots).
+ * The same holds for binary frames read with BinaryFormat.SolutionInput,
+ * and frames with corrupted or missing bytes must either decode or fail with an IOException.
+ *
+ * Usage: SolutionFormatCheck [trials], default 200. Exits with status 1 on the first failure.
+ */
+public class SolutionFormatCheck {
+
+    public static void main(String[] args) throws IOException {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        Path file = Files.createTempFile("solution-format-check", ".txt");
+        try {
+            checkText(trials, new Random(1), file.toString());
+            checkBinary(trials, new Random(2));
+        } catch (IllegalStateException e) {
+            System.err.println("FAILED: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /**
+     * Writes batches of solutions as text, the second batch appended to the first, and reads
+     * them back, alone with SolutionReader.read and all together with SolutionReader.readAll.
+     */
+    private static void checkText(int trials, Random rng, String file) throws IOException {
+        for (int t = 0; t < trials; t++) {
+            CVRPInstance instance = randomInstance(rng);
+            boolean async = rng.nextBoolean();
+
+            CVRPSolution single = randomSolution(instance, rng);
+            SolutionWriter.writeSolution(file, single);
+            compare(List.of(single), List.of(SolutionReader.read(file, instance)), t, "SolutionWriter");
+
+            List<CVRPSolution> written = new ArrayList<>();
+            for (int batch = 0; batch < 2; batch++) {
+                try (SolutionStreamWriter out = SolutionStreamWriter.open(file, batch > 0,
+                        SolutionStreamWriter.Format.TEXT, async)) {
+                    int count = 1 + rng.nextInt(4);
+                    for (int k = 0; k < count; k++) {
+                        CVRPSolution sol = randomSolution(instance, rng);
+                        out.write(sol);
+                        written.add(sol);
+                    }
+                }
+            }
+            compare(written, SolutionReader.readAll(file, instance), t, async ? "async stream" : "stream");
+        }
+    }
+
+    /**
+     * Writes solutions as binary frames, reads them back and then reads copies of the stream
+     * with a few random bytes changed or the end cut off.
+     */
+    private static void checkBinary(int trials, Random rng) throws IOException {
+        for (int t = 0; t < trials; t++) {
+            CVRPInstance instance = randomInstance(rng);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            List<CVRPSolution> written = new ArrayList<>();
+            try (SolutionStreamWriter out = new SolutionStreamWriter(Channels.newChannel(bytes),
+                    SolutionStreamWriter.Format.BINARY, false)) {
+                for (int k = 1 + rng.nextInt(3); k > 0; k--) {
+                    CVRPSolution sol = randomSolution(instance, rng);
+                    out.write(sol);
+                    written.add(sol);
+                }
+            }
+            byte[] stream = bytes.toByteArray();
+            compare(written, readBinary(stream, instance), t, "binary");
+
+            for (int k = 0; k < 20; k++) {
+                byte[] corrupt = Arrays.copyOf(stream, k % 4 == 0 ? rng.nextInt(stream.length) : stream.length);
+                for (int m = 1 + rng.nextInt(3); m > 0 && corrupt.length > 0; m--) {
+                    corrupt[rng.nextInt(corrupt.length)] = (byte) rng.nextInt(256);
+                }
+                try {
+                    readBinary(corrupt, instance);
+                } catch (IOException e) {
+                    // expected for most corruptions
+                } catch (RuntimeException | Error e) {
+                    throw new IllegalStateException("trial " + t + ", corrupt binary stream: " + e, e);
+                }
+            }
+        }
+    }
+
+    private static List<CVRPSolution> readBinary(byte[] stream, CVRPInstance instance) throws IOException {
+        List<CVRPSolution> sols = new ArrayList<>();
+        try (BinaryFormat.SolutionInput in = new BinaryFormat.SolutionInput(
+                Channels.newChannel(new ByteArrayInputStream(stream)))) {
+            CVRPSolution sol;
+            while ((sol = in.read(instance)) != null) {
+                sols.add(sol);
+            }
+        }
+        return sols;
+    }
+
+    private static CVRPInstance randomInstance(Random rng) {
+        int nodes = 2 + rng.nextInt(30);
+        int[] x = new int[nodes + 1];
+        int[] y = new int[nodes + 1];
+        int[] demand = new int[nodes + 1];
+        for (int i = 1; i <= nodes; i++) {
+            x[i] = rng.nextInt(100);
+            y[i] = rng.nextInt(100);
+            demand[i] = i == 1 ? 0 : 1 + rng.nextInt(10);
+        }
+        if (nodes < 4 || rng.nextBoolean()) {
+            return new CVRPInstance(nodes, 50, x, y, demand);
+        }
+        // a few more depots among the nodes
+        int[] depots = new int[1 + rng.nextInt(3)];
+        depots[0] = 1;
+        for (int k = 1; k < depots.length; k++) {
+            depots[k] = 2 + rng.nextInt(nodes - 1);
+            demand[depots[k]] = 0;
+        }
+        return new TWInstance(nodes, 50, x, y, demand, depots, null, null, null);
+    }
+
+    /**
+     * Splits a random permutation of the customers into routes from random depots and adds
+     * empty routes, always one between two non-empty routes when there are two.
+     */
+    private static CVRPSolution randomSolution(CVRPInstance instance, Random rng) {
+        List<Integer> customers = new ArrayList<>();
+        for (int c = 2; c <= instance.getNodes(); c++) {
+            if (!instance.isDepot(c)) {
+                customers.add(rng.nextInt(customers.size() + 1), c);
+            }
+        }
+        int[] depots = instance.getDepots();
+        CVRPSolution sol = new CVRPSolution();
+        if (rng.nextBoolean()) {
+            sol.addRoute(new Route(new ArrayList<>(), instance));
+        }
+        int from = 0;
+        while (from < customers.size()) {
+            int to = Math.min(customers.size(), from + 1 + rng.nextInt(5));
+            if (from > 0) {
+                sol.addRoute(new Route(new ArrayList<>(), instance));
+            }
+            sol.addRoute(new Route(new ArrayList<>(customers.subList(from, to)), instance,
+                    depots[rng.nextInt(depots.length)]));
+            from = to;
+        }
+        if (rng.nextBoolean()) {
+            sol.addRoute(new Route(new ArrayList<>(), instance));
+        }
+        return sol;
+    }
+
+    private static void compare(List<CVRPSolution> expected, List<CVRPSolution> actual, int trial, String writer) {
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException("trial " + trial + ", " + writer + ": " + actual.size()
+                    + " solutions read, " + expected.size() + " written");
+        }
+        for (int k = 0; k < expected.size(); k++) {
+            List<List<Integer>> want = nonEmptyRoutes(expected.get(k));
+            List<List<Integer>> got = nonEmptyRoutes(actual.get(k));
+            if (!want.equals(got)) {
+                throw new IllegalStateException("trial " + trial + ", " + writer + ", solution " + k + ": read "
+                        + got + ", written " + want);
+            }
+        }
+    }
+
+    /**
+     * Lists the non-empty routes of a solution, each as its depot followed by its customers.
+     */
+    private static List<List<Integer>> nonEmptyRoutes(CVRPSolution sol) {
+        List<List<Integer>> routes = new ArrayList<>();
+        for (Route r : sol.getRoutes()) {
+            if (!r.getCustomers().isEmpty()) {
+                List<Integer> route = new ArrayList<>();
+                route.add(r.getDepot());
+                route.addAll(r.getCustomers());
+                routes.add(route);
+            }
+        }
+        return routes;
+    }
+}
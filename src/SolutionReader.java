@@ -0,0 +1,88 @@
+package src;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads a CVRP solution from a txt file written by SolutionWriter
+ * (one route per line, customers separated by spaces). Files written by SolutionStreamWriter
+ * hold several solutions separated by empty lines; use readAll for those.
+ * A line that starts with a depot id is a route of that depot, otherwise of node 1. Other ids
+ * that are not customers of the instance are skipped, so a solution of an earlier version
+ * of the instance can still be read and then fixed with SolutionRepair.
+ */
+public class SolutionReader {
+    public static CVRPSolution read(String filePath, CVRPInstance instance) throws IOException {
+        CVRPSolution sol = new CVRPSolution();
+
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            String line;
+
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                sol.addRoute(parseRoute(line, instance));
+            }
+        }
+        return sol;
+    }
+
+    /**
+     * Reads all solutions from a txt file written by SolutionStreamWriter, where
+     * consecutive solutions are separated by an empty line.
+     * @param filePath input file
+     * @param instance CVRP instance the solutions belong to
+     * @return the solutions in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static List<CVRPSolution> readAll(String filePath, CVRPInstance instance) throws IOException {
+        List<CVRPSolution> sols = new ArrayList<>();
+        CVRPSolution current = null;
+
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            String line;
+
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    current = null;
+                    continue;
+                }
+                if (current == null) {
+                    current = new CVRPSolution();
+                    sols.add(current);
+                }
+
+                current.addRoute(parseRoute(line, instance));
+            }
+        }
+        return sols;
+    }
+
+    /**
+     * Parses one route line, skipping ids that are not customers of the instance.
+     * @param line customers separated by whitespace, optionally after the depot id
+     * @param instance CVRP instance
+     * @return the route
+     */
+    private static Route parseRoute(String line, CVRPInstance instance) {
+        String[] parts = line.split("\\s+");
+        List<Integer> customers = new ArrayList<>(parts.length);
+        int depot = 1;
+        for (int k = 0; k < parts.length; k++) {
+            int c = Integer.parseInt(parts[k]);
+            if (c < 1 || c > instance.getNodes()) {
+                continue;
+            }
+            if (!instance.isDepot(c)) {
+                customers.add(c);
+            } else if (k == 0) {
+                depot = c;
+            }
+        }
+        return new Route(customers, instance, depot);
+    }
+}
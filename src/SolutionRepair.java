@@ -0,0 +1,232 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a solution that may not fit the instance (e.g. yesterday's plan after demand changes,
+ * or a hand-edited solution file) into a feasible solution that keeps as much of it as possible.
+ *
+ * Unknown and duplicate customers are dropped. Overloaded routes move out customers until
+ * they fit, each time the one whose removal plus cheapest feasible reinsertion costs least.
+ * Missing customers are inserted at their cheapest feasible position (largest demand first).
+ * A new route is opened whenever a customer fits in no existing route or that is cheaper.
+ * A customer whose demand alone exceeds the capacity is put on a route of its own and left
+ * there; the repaired solution is then feasible apart from these routes.
+ *
+ * Instances with time windows or several depots are repaired route by route instead: routes
+ * that are feasible once unknown and repeated customers are dropped are kept with their
+ * depot, the others are dissolved, and their customers and the missing ones are inserted by
+ * InsertionHeuristic.
+ */
+public class SolutionRepair {
+    private static final int DEPOT = 1;
+
+    /**
+     * Repairs a solution. The input solution is not modified.
+     * @param sol solution to repair
+     * @param instance CVRP instance
+     * @return solution visiting every customer exactly once, feasible unless a demand exceeds the capacity
+     */
+    public static CVRPSolution repair(CVRPSolution sol, CVRPInstance instance) {
+        return repair(sol, instance, true);
+    }
+
+    /**
+     * Repairs a solution. The input solution is not modified.
+     * @param sol solution to repair
+     * @param instance CVRP instance
+     * @param insertMissing false when sol holds only some routes of a solution: customers that
+     *                      are not visited are then left out instead of being inserted
+     * @return solution that is feasible unless a demand exceeds the capacity
+     */
+    public static CVRPSolution repair(CVRPSolution sol, CVRPInstance instance, boolean insertMissing) {
+        if (!instance.isPureCVRP()) {
+            return repairRoutes(sol, instance, insertMissing);
+        }
+        int n = instance.getNodes();
+        int Q = instance.getCapacity();
+        boolean[] seen = new boolean[n + 1];
+        List<List<Integer>> routes = new ArrayList<>();
+        List<Integer> loads = new ArrayList<>();
+
+        for (Route r : sol.getRoutes()) {
+            List<Integer> kept = new ArrayList<>();
+            int load = 0;
+            for (int c : r.getCustomers()) {
+                // drop the depot, unknown customers and repeated visits
+                if (c <= DEPOT || c > n || seen[c]) {
+                    continue;
+                }
+                seen[c] = true;
+                if (instance.getDemand(c) > Q) {
+                    // fits in no route: a route of its own, excluded from the overload loop below
+                    List<Integer> single = new ArrayList<>();
+                    single.add(c);
+                    routes.add(single);
+                    loads.add(instance.getDemand(c));
+                    continue;
+                }
+                kept.add(c);
+                load += instance.getDemand(c);
+            }
+            if (!kept.isEmpty()) {
+                routes.add(kept);
+                loads.add(load);
+            }
+        }
+
+        // overloaded routes: move out the customer whose removal plus cheapest feasible
+        // reinsertion elsewhere costs least, until the route fits; an ejected customer always
+        // fits somewhere, at worst on a new route, since larger demands were separated above
+        int[] costs = new int[n + 1];
+        for (int k = 0; k < routes.size(); k++) {
+            List<Integer> route = routes.get(k);
+            while (loads.get(k) > Q && route.size() > 1) {
+                int bestPos = -1;
+                long bestNet = Long.MAX_VALUE;
+                for (int p = 0; p < route.size(); p++) {
+                    int c = route.get(p);
+                    long net = insertionCost(c, routes, loads, k, Q, instance, costs) - removalSaving(route, p, instance);
+                    if (net < bestNet) {
+                        bestNet = net;
+                        bestPos = p;
+                    }
+                }
+                int c = route.remove(bestPos);
+                loads.set(k, loads.get(k) - instance.getDemand(c));
+                insert(c, routes, loads, k, Q, instance, costs);
+            }
+        }
+
+        // missing customers: cheapest feasible insertion, largest demand first
+        List<Integer> unassigned = new ArrayList<>();
+        for (int c = 2; c <= n && insertMissing; c++) {
+            if (!seen[c]) {
+                unassigned.add(c);
+            }
+        }
+        unassigned.sort((a, b) -> Integer.compare(instance.getDemand(b), instance.getDemand(a)));
+        for (int c : unassigned) {
+            insert(c, routes, loads, -1, Q, instance, costs);
+        }
+
+        CVRPSolution repaired = new CVRPSolution();
+        for (List<Integer> route : routes) {
+            if (!route.isEmpty()) {
+                repaired.addRoute(new Route(route, instance));
+            }
+        }
+        return repaired;
+    }
+
+    /**
+     * Repairs a solution of an instance with time windows or several depots, keeping its
+     * feasible routes and reinserting the customers of the others.
+     */
+    private static CVRPSolution repairRoutes(CVRPSolution sol, CVRPInstance instance, boolean insertMissing) {
+        int n = instance.getNodes();
+        boolean[] seen = new boolean[n + 1];
+        List<Route> routes = new ArrayList<>();
+        List<Integer> reinsert = new ArrayList<>();
+
+        for (Route r : sol.getRoutes()) {
+            List<Integer> kept = new ArrayList<>();
+            for (int c : r.getCustomers()) {
+                if (c <= DEPOT || c > n || instance.isDepot(c) || seen[c]) {
+                    continue;
+                }
+                seen[c] = true;
+                kept.add(c);
+            }
+            if (kept.isEmpty()) {
+                continue;
+            }
+            int depot = instance.isDepot(r.getDepot()) ? r.getDepot() : DEPOT;
+            if (RouteEvaluator.of(instance, kept, depot).isFeasible()) {
+                routes.add(new Route(kept, instance, depot));
+            } else {
+                reinsert.addAll(kept);
+            }
+        }
+        for (int c = 2; c <= n && insertMissing; c++) {
+            if (!seen[c] && !instance.isDepot(c)) {
+                reinsert.add(c);
+            }
+        }
+        new InsertionHeuristic(0).insert(routes, reinsert, instance, null);
+
+        CVRPSolution repaired = new CVRPSolution();
+        for (Route r : routes) {
+            repaired.addRoute(r);
+        }
+        return repaired;
+    }
+
+    /**
+     * Computes the cost of the cheapest feasible insertion of a customer.
+     * @param skip index of a route not to insert into, or -1
+     * @return insertion cost, or the cost of a new route if the customer fits nowhere
+     */
+    private static long insertionCost(int c, List<List<Integer>> routes, List<Integer> loads, int skip, int Q,
+                                      CVRPInstance instance, int[] costs) {
+        long best = 2L * instance.getDistance(DEPOT, c);
+        int d = instance.getDemand(c);
+        for (int k = 0; k < routes.size(); k++) {
+            if (k == skip || loads.get(k) + d > Q) {
+                continue;
+            }
+            List<Integer> route = routes.get(k);
+            RouteUtils.insertionCosts(RouteUtils.toTour(route), route.size(), c, instance, costs);
+            for (int p = 0; p <= route.size(); p++) {
+                best = Math.min(best, costs[p]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Inserts a customer at its cheapest feasible position, or in a new route if it fits nowhere.
+     * @param skip index of a route not to insert into, or -1
+     */
+    private static void insert(int c, List<List<Integer>> routes, List<Integer> loads, int skip, int Q,
+                               CVRPInstance instance, int[] costs) {
+        int d = instance.getDemand(c);
+        int bestRoute = -1;
+        int bestPos = -1;
+        int bestCost = 2 * instance.getDistance(DEPOT, c);
+        for (int k = 0; k < routes.size(); k++) {
+            if (k == skip || loads.get(k) + d > Q) {
+                continue;
+            }
+            List<Integer> route = routes.get(k);
+            RouteUtils.insertionCosts(RouteUtils.toTour(route), route.size(), c, instance, costs);
+            for (int p = 0; p <= route.size(); p++) {
+                if (costs[p] < bestCost) {
+                    bestCost = costs[p];
+                    bestRoute = k;
+                    bestPos = p;
+                }
+            }
+        }
+        if (bestRoute == -1) {
+            List<Integer> single = new ArrayList<>();
+            single.add(c);
+            routes.add(single);
+            loads.add(d);
+        } else {
+            routes.get(bestRoute).add(bestPos, c);
+            loads.set(bestRoute, loads.get(bestRoute) + d);
+        }
+    }
+
+    /**
+     * Computes the distance saved by removing the customer at position p of a route.
+     */
+    private static int removalSaving(List<Integer> route, int p, CVRPInstance instance) {
+        int prev = p == 0 ? DEPOT : route.get(p - 1);
+        int next = p == route.size() - 1 ? DEPOT : route.get(p + 1);
+        int c = route.get(p);
+        return instance.getDistance(prev, c) + instance.getDistance(c, next) - instance.getDistance(prev, next);
+    }
+}
@@ -0,0 +1,354 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Streaming writer that appends many solutions to one output channel.
+ *
+ * Solutions are encoded straight into a reusable byte buffer (digits are written without
+ * creating intermediate strings) and flushed to the channel when the buffer fills up.
+ * In text format each solution is written as in SolutionWriter and solutions are separated
+ * by an empty line; in binary format each solution is a BinaryFormat frame.
+ *
+ * In async mode full buffers are handed to a background thread that does the disk writes,
+ * so the solver thread only pays for the encoding. A small fixed set of buffers is cycled
+ * between the two threads, which bounds memory and throttles the solver if the disk falls behind.
+ */
+public class SolutionStreamWriter implements Closeable {
+    public enum Format { TEXT, BINARY }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int ASYNC_BUFFERS = 4;
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final ExecutorService writerThread;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private volatile IOException asyncError;
+
+    private ByteBuffer buf;
+    /** text written before the first solution so that it starts after an empty line */
+    private final String leadingSeparator;
+    private int solutionsWritten = 0;
+    private boolean closed = false;
+
+    /**
+     * Constructor
+     * @param channel channel to write to (closed together with this writer); a file channel
+     *                positioned after existing text solutions is continued with an empty line
+     * @param format output format
+     * @param async true to perform channel writes on a background thread
+     * @throws IOException if the end of a file channel cannot be read
+     */
+    public SolutionStreamWriter(WritableByteChannel channel, Format format, boolean async) throws IOException {
+        this(channel, format, async, format == Format.TEXT ? leadingSeparator(channel) : "");
+    }
+
+    private SolutionStreamWriter(WritableByteChannel channel, Format format, boolean async, String leadingSeparator) {
+        this.channel = channel;
+        this.format = format;
+        this.leadingSeparator = leadingSeparator;
+        if (async) {
+            this.writerThread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "solution-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            this.freeBuffers = new ArrayBlockingQueue<>(ASYNC_BUFFERS);
+            for (int i = 0; i < ASYNC_BUFFERS - 1; i++) {
+                freeBuffers.add(newBuffer());
+            }
+        } else {
+            this.writerThread = null;
+            this.freeBuffers = null;
+        }
+        this.buf = newBuffer();
+    }
+
+    /**
+     * Opens a writer on a file.
+     * @param filePath output file
+     * @param append true to append to an existing file, false to truncate it
+     * @param format output format
+     * @param async true to perform disk writes on a background thread
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    public static SolutionStreamWriter open(String filePath, boolean append, Format format, boolean async) throws IOException {
+        String separator = "";
+        if (append && format == Format.TEXT && Files.exists(Paths.get(filePath))) {
+            try (FileChannel existing = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+                separator = separatorAfter(existing, existing.size());
+            }
+        }
+        FileChannel ch = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        return new SolutionStreamWriter(ch, format, async, separator);
+    }
+
+    /**
+     * Finds what must precede the first solution written to a channel so that it is separated
+     * from text already before the channel position. A file channel that cannot be read gets
+     * one line break if it is not at the start; a doubled empty line is harmless.
+     */
+    private static String leadingSeparator(WritableByteChannel channel) throws IOException {
+        if (!(channel instanceof FileChannel) || ((FileChannel) channel).position() == 0) {
+            return "";
+        }
+        FileChannel file = (FileChannel) channel;
+        try {
+            return separatorAfter(file, file.position());
+        } catch (NonReadableChannelException e) {
+            return "\n";
+        }
+    }
+
+    /**
+     * Reads the last bytes of a file before a position: nothing is needed at the start of the
+     * file or after an empty line, one line break after a complete line, else two.
+     */
+    private static String separatorAfter(FileChannel file, long end) throws IOException {
+        if (end == 0) {
+            return "";
+        }
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.min(2, end));
+        long from = end - tail.capacity();
+        while (tail.hasRemaining() && file.read(tail, from + tail.position()) > 0) {
+            // until the bytes before end are read
+        }
+        if (tail.get(tail.capacity() - 1) != '\n') {
+            return "\n\n";
+        }
+        return tail.capacity() == 2 && tail.get(0) == '\n' ? "" : "\n";
+    }
+
+    /**
+     * Appends one solution to the stream.
+     * @param sol solution to write
+     * @throws IOException if an earlier or the current write failed
+     */
+    public synchronized void write(CVRPSolution sol) throws IOException {
+        checkOpen();
+        if (format == Format.BINARY) {
+            buf = BinaryFormat.encodeSolution(sol, buf);
+        } else {
+            encodeText(sol);
+        }
+        solutionsWritten++;
+        if (buf.position() >= BUFFER_SIZE / 2) {
+            drain();
+        }
+    }
+
+    /**
+     * Appends a batch of solutions to the stream.
+     * @param sols solutions to write, in order
+     * @throws IOException if a write failed
+     */
+    public synchronized void writeAll(Collection<CVRPSolution> sols) throws IOException {
+        for (CVRPSolution sol : sols) {
+            write(sol);
+        }
+    }
+
+    /**
+     * Gets the number of solutions written so far.
+     * @return number of solutions
+     */
+    public synchronized int getSolutionsWritten() {
+        return solutionsWritten;
+    }
+
+    /**
+     * Pushes all buffered solutions to the channel and, in async mode, waits until they are written.
+     * @throws IOException if a write failed
+     */
+    public synchronized void flush() throws IOException {
+        checkOpen();
+        drain();
+        if (writerThread != null) {
+            try {
+                writerThread.submit(() -> { }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while flushing solutions");
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+            rethrowAsyncError();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            if (writerThread != null) {
+                writerThread.shutdown();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Encodes a solution as text: one route per line, customers separated by spaces,
+     * followed by an empty line when more solutions may follow. Empty routes are left out,
+     * since their empty line would end the solution for SolutionReader.readAll. A route from
+     * another depot than node 1 starts with the depot id.
+     * @param sol solution to encode
+     */
+    private void encodeText(CVRPSolution sol) throws IOException {
+        if (solutionsWritten > 0) {
+            ensureRemaining(1);
+            buf.put((byte) '\n');
+        } else if (!leadingSeparator.isEmpty()) {
+            ensureRemaining(leadingSeparator.length());
+            for (int i = 0; i < leadingSeparator.length(); i++) {
+                buf.put((byte) leadingSeparator.charAt(i));
+            }
+        }
+        for (Route r : sol.getRoutes()) {
+            List<Integer> customers = r.getCustomers();
+            int size = customers.size();
+            if (size == 0) {
+                continue;
+            }
+
+            // at most 11 characters per int plus one separator, the depot included
+            ensureRemaining(12 * (size + 1) + 1);
+            byte[] out = buf.array();
+            int pos = buf.arrayOffset() + buf.position();
+            if (r.getDepot() != 1) {
+                pos = putDigits(out, pos, r.getDepot());
+                out[pos++] = ' ';
+            }
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    out[pos++] = ' ';
+                }
+                pos = putDigits(out, pos, customers.get(i));
+            }
+            out[pos++] = '\n';
+            buf.position(pos - buf.arrayOffset());
+        }
+    }
+
+    /**
+     * Writes the decimal digits of value at out[pos..].
+     * @return position after the last digit
+     */
+    private static int putDigits(byte[] out, int pos, int value) {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                byte[] s = Integer.toString(value).getBytes();
+                System.arraycopy(s, 0, out, pos, s.length);
+                return pos + s.length;
+            }
+            out[pos++] = '-';
+            value = -value;
+        }
+        int len = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            len++;
+        }
+        int end = pos + len;
+        for (int p = end - 1; p >= pos; p--) {
+            out[p] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buf.remaining() >= bytes) {
+            return;
+        }
+        drain();
+        if (buf.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(bytes + buf.position());
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+    }
+
+    /**
+     * Hands the current buffer to the channel (directly or through the writer thread).
+     */
+    private void drain() throws IOException {
+        rethrowAsyncError();
+        if (buf.position() == 0) {
+            return;
+        }
+        if (writerThread == null) {
+            buf.flip();
+            BinaryFormat.writeFully(channel, buf);
+            buf.clear();
+            return;
+        }
+
+        ByteBuffer full = buf;
+        try {
+            buf = freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        }
+        buf.clear();
+        full.flip();
+        writerThread.execute(() -> {
+            try {
+                if (asyncError == null) {
+                    BinaryFormat.writeFully(channel, full);
+                }
+            } catch (IOException e) {
+                asyncError = e;
+            } finally {
+                full.clear();
+                freeBuffers.offer(full);
+            }
+        });
+    }
+
+    /**
+     * Allocates an encoding buffer: heap for text (digits are written into the backing array),
+     * direct for binary (frames go to the channel without an extra copy).
+     */
+    private ByteBuffer newBuffer() {
+        return format == Format.BINARY ? ByteBuffer.allocateDirect(BUFFER_SIZE) : ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    private void rethrowAsyncError() throws IOException {
+        IOException e = asyncError;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Solution writer is closed");
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Checks CVRP solutions for correctness against an instance.
+ *
+ * A full check (validate) verifies in O(n) that every customer is visited exactly once,
+ * that no route contains a depot or unknown nodes, and that every route starts at a depot,
+ * respects the capacity and the time windows, if any, and has the correct cached demand.
+ * A partial solution, e.g. the few routes that Reoptimizer improves on their own, is checked
+ * the same way except that customers may be missing.
+ *
+ * In incremental mode (reset, then registered as MoveListener of NeighbourhoodReal) only
+ * the routes touched by a move are checked, and the claimed distance delta of the move is
+ * compared against the actual change. The cost of a check is proportional to the length of
+ * the changed routes, which the move has to pay for anyway.
+ */
+public class SolutionValidator implements MoveListener {
+    private final CVRPInstance instance;
+    private final int[] visits;
+    private final int customerCount;
+    private final List<Integer> touched = new ArrayList<>();
+    private int totalDistance;
+    private int pendingDelta;
+
+    public SolutionValidator(CVRPInstance instance) {
+        this.instance = instance;
+        this.visits = new int[instance.getNodes() + 1];
+        int customers = 0;
+        for (int c = 2; c <= instance.getNodes(); c++) {
+            if (!instance.isDepot(c)) {
+                customers++;
+            }
+        }
+        this.customerCount = customers;
+    }
+
+    /**
+     * Fully checks a solution.
+     * @param sol solution to check
+     * @return list of violations, empty if the solution is valid
+     */
+    public List<String> validate(CVRPSolution sol) {
+        return validate(sol, false);
+    }
+
+    /**
+     * Checks a solution that may cover only part of the customers.
+     * @param sol solution to check
+     * @param partial true to accept customers that are not visited
+     * @return list of violations, empty if the solution is valid
+     */
+    public List<String> validate(CVRPSolution sol, boolean partial) {
+        List<String> errors = new ArrayList<>();
+        int n = instance.getNodes();
+        BitSet seen = new BitSet(n + 1);
+
+        List<Route> routes = sol.getRoutes();
+        for (int r = 0; r < routes.size(); r++) {
+            Route route = routes.get(r);
+            int load = 0;
+            for (int c : route.getCustomers()) {
+                if (c < 2 || c > n || instance.isDepot(c)) {
+                    errors.add("Route " + r + " visits invalid node " + c);
+                    continue;
+                }
+                if (seen.get(c)) {
+                    errors.add("Customer " + c + " is visited more than once");
+                }
+                seen.set(c);
+                load += instance.getDemand(c);
+            }
+            checkLoad(r, route, load, errors);
+            checkDepotAndWindows(r, route, errors);
+        }
+
+        if (!partial && seen.cardinality() != customerCount) {
+            for (int c = seen.nextClearBit(2); c <= n; c = seen.nextClearBit(c + 1)) {
+                if (!instance.isDepot(c)) {
+                    errors.add("Customer " + c + " is not visited");
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Fully checks a solution and throws if it is invalid.
+     * @param sol solution to check
+     * @throws IllegalStateException describing the first violation
+     */
+    public void check(CVRPSolution sol) {
+        check(sol, false);
+    }
+
+    /**
+     * Checks a solution that may cover only part of the customers and throws if it is invalid.
+     * @param sol solution to check
+     * @param partial true to accept customers that are not visited
+     * @throws IllegalStateException describing the first violation
+     */
+    public void check(CVRPSolution sol, boolean partial) {
+        List<String> errors = validate(sol, partial);
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Invalid solution: " + errors.get(0)
+                    + (errors.size() > 1 ? " (and " + (errors.size() - 1) + " more)" : ""));
+        }
+    }
+
+    /**
+     * Starts incremental validation from the given solution, which is fully checked first.
+     * @param sol solution that subsequent moves will modify
+     * @throws IllegalStateException if the solution is invalid
+     */
+    public void reset(CVRPSolution sol) {
+        reset(sol, false);
+    }
+
+    /**
+     * Starts incremental validation from a solution that may cover only part of the customers.
+     * Moves must then keep the covered customers covered exactly once.
+     * @param sol solution that subsequent moves will modify
+     * @param partial true to accept customers that are not visited
+     * @throws IllegalStateException if the solution is invalid
+     */
+    public void reset(CVRPSolution sol, boolean partial) {
+        check(sol, partial);
+        Arrays.fill(visits, 0);
+        for (Route r : sol.getRoutes()) {
+            for (int c : r.getCustomers()) {
+                visits[c] = 1;
+            }
+        }
+        totalDistance = sol.getTotalDistance(instance);
+        pendingDelta = 0;
+        touched.clear();
+    }
+
+    /**
+     * Gets the total distance of the tracked solution, maintained incrementally.
+     * @return total distance
+     */
+    public int getTotalDistance() {
+        return totalDistance;
+    }
+
+    @Override
+    public void routeChanged(int index, Route before, Route after) {
+        for (int c : before.getCustomers()) {
+            visits[c]--;
+            touched.add(c);
+        }
+        int load = 0;
+        for (int c : after.getCustomers()) {
+            if (c < 2 || c >= visits.length || instance.isDepot(c)) {
+                throw new IllegalStateException("Move put invalid node " + c + " in route " + index);
+            }
+            visits[c]++;
+            touched.add(c);
+            load += instance.getDemand(c);
+        }
+
+        List<String> errors = new ArrayList<>();
+        checkLoad(index, after, load, errors);
+        checkDepotAndWindows(index, after, errors);
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Invalid move: " + errors.get(0));
+        }
+        pendingDelta += after.getDistance(instance) - before.getDistance(instance);
+    }
+
+    @Override
+    public void moveApplied(int delta) {
+        for (int c : touched) {
+            if (visits[c] != 1) {
+                throw new IllegalStateException("Invalid move: customer " + c + " is visited " + visits[c] + " times");
+            }
+        }
+        if (delta != pendingDelta) {
+            throw new IllegalStateException("Invalid move: claimed delta " + delta + " but distance changed by " + pendingDelta);
+        }
+        totalDistance += pendingDelta;
+        pendingDelta = 0;
+        touched.clear();
+    }
+
+    private void checkLoad(int index, Route route, int load, List<String> errors) {
+        if (load != route.getDemand()) {
+            errors.add("Route " + index + " has cached demand " + route.getDemand() + " but actual demand " + load);
+        }
+        if (load > instance.getCapacity()) {
+            errors.add("Route " + index + " exceeds capacity: " + load + " > " + instance.getCapacity());
+        }
+    }
+
+    private void checkDepotAndWindows(int index, Route route, List<String> errors) {
+        if (!instance.isDepot(route.getDepot())) {
+            errors.add("Route " + index + " starts at node " + route.getDepot() + ", which is not a depot");
+        } else if (instance instanceof TWInstance && ((TWInstance) instance).hasTimeWindows()) {
+            int timeWarp = new TimeWindowRouteEvaluator((TWInstance) instance, route.getCustomers(),
+                    route.getDepot()).getTimeWarp();
+            if (timeWarp > 0) {
+                errors.add("Route " + index + " misses its time windows by " + timeWarp);
+            }
+        }
+    }
+}
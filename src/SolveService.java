@@ -0,0 +1,382 @@
+package src;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded HTTP/JSON solve service on the JDK's built-in HTTP server, so that many small
+ * instances can be solved by one long-running JVM.
+ *
+ * Request handling and search run on separate executors. Handlers run on virtual threads when
+ * the JVM has them (Java 21+, looked up reflectively) and on a cached thread pool otherwise;
+ * they only parse, wait and respond. GRASP runs on a fixed compute pool with a bounded queue:
+ * when the queue is full a request is rejected at once with 503 (admission control) instead
+ * of waiting behind work it cannot outlive.
+ *
+ * Every request has a deadline that includes its time in the queue; GRASP gets whatever is
+ * left of it, and a request whose deadline passes before a result exists gets 504.
+ *
+ * Endpoints:
+ *   POST /solve?deadline=ms&amp;seed=s&amp;alpha=a&amp;iterations=n   body: instance in the InstanceReader format
+ *        -&gt; {"cost":..,"routes":[[..],..],"iterations":..,"queueMillis":..,"solveMillis":..}
+ *        instances with time windows or several depots also get "depots":[..], the depot of every route
+ *   GET  /status -&gt; queue depth, running and completed solves, rejections and timeouts
+ */
+public class SolveService {
+    /** largest accepted request body */
+    private static final int MAX_BODY_BYTES = 16 << 20;
+    private static final long DEFAULT_DEADLINE_MILLIS = 1000;
+    private static final long MAX_DEADLINE_MILLIS = 10 * 60 * 1000L;
+    /**
+     * Part of the deadline kept free, as GRASP only checks its time limit between iterations and
+     * the response still has to be built: a tenth of the deadline, but at least this many ms.
+     */
+    private static final long MIN_MARGIN_MILLIS = 50;
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ThreadPoolExecutor compute;
+    private final int queueCapacity;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param port port to listen on (0 for any free port)
+     * @param computeThreads number of concurrent GRASP solves
+     * @param queueCapacity number of solves that may wait for a compute thread
+     * @throws IOException if the port cannot be bound
+     */
+    public SolveService(int port, int computeThreads, int queueCapacity) throws IOException {
+        this.queueCapacity = queueCapacity;
+        this.compute = new ThreadPoolExecutor(computeThreads, computeThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "solve-worker");
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.handlers = newHandlerExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/status", this::handleStatus);
+        server.setExecutor(handlers);
+    }
+
+    /**
+     * Creates the executor for request handlers: one virtual thread per request when available,
+     * a cached pool of daemon threads otherwise.
+     */
+    private static ExecutorService newHandlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "solve-handler");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Starts serving requests.
+     * @return this service
+     */
+    public SolveService start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stops the service, waiting at most the given time for running exchanges.
+     * @param delaySeconds grace period
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        compute.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Gets the port the service listens on.
+     * @return port number
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the number of solves waiting for a compute thread.
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        return compute.getQueue().size();
+    }
+
+    /**
+     * Result of one solve.
+     */
+    private static final class Result {
+        final CVRPSolution solution;
+        final int cost;
+        final long iterations;
+        final long queueMillis;
+        final long solveMillis;
+
+        Result(CVRPSolution solution, int cost, long iterations, long queueMillis, long solveMillis) {
+            this.solution = solution;
+            this.cost = cost;
+            this.iterations = iterations;
+            this.queueMillis = queueMillis;
+            this.solveMillis = solveMillis;
+        }
+    }
+
+    private void handleSolve(HttpExchange ex) throws IOException {
+        long received = System.nanoTime();
+        try {
+            if (!"POST".equals(ex.getRequestMethod())) {
+                sendError(ex, 405, "use POST with the instance as body");
+                return;
+            }
+            Map<String, String> params = query(ex.getRequestURI().getRawQuery());
+            long deadline;
+            long seed;
+            double alpha;
+            long maxIterations;
+            try {
+                deadline = Math.min(MAX_DEADLINE_MILLIS, Math.max(1, Long.parseLong(params.getOrDefault("deadline",
+                        Long.toString(DEFAULT_DEADLINE_MILLIS)))));
+                seed = Long.parseLong(params.getOrDefault("seed", "42"));
+                alpha = Double.parseDouble(params.getOrDefault("alpha", "0.3"));
+                maxIterations = Long.parseLong(params.getOrDefault("iterations", "0"));
+            } catch (NumberFormatException e) {
+                sendError(ex, 400, "invalid parameter: " + e.getMessage());
+                return;
+            }
+
+            byte[] body = readBody(ex.getRequestBody());
+            if (body == null) {
+                sendError(ex, 413, "instance larger than " + (MAX_BODY_BYTES >> 20) + " MB");
+                return;
+            }
+            CVRPInstance instance;
+            try {
+                instance = InstanceReader.parse(new String(body, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                sendError(ex, 400, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                sendError(ex, 400, "Invalid instance: " + e);
+                return;
+            }
+            int unservable = instance.findUnservableCustomer();
+            if (unservable != -1 && instance.getDemand(unservable) > instance.getCapacity()) {
+                sendError(ex, 400, "demand " + instance.getDemand(unservable) + " of customer " + unservable
+                        + " exceeds the capacity " + instance.getCapacity());
+                return;
+            } else if (unservable != -1) {
+                sendError(ex, 400, "customer " + unservable + " cannot be served within its time window");
+                return;
+            }
+
+            Future<Result> future;
+            try {
+                future = compute.submit(() -> solve(instance, seed, alpha, maxIterations, received, deadline));
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                ex.getResponseHeaders().set("Retry-After", "1");
+                sendError(ex, 503, "overloaded: " + getQueueDepth() + " solves queued");
+                return;
+            }
+
+            long remaining = deadline - elapsedMillis(received);
+            Result result;
+            try {
+                result = future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | CancellationException e) {
+                future.cancel(true);
+                timedOut.incrementAndGet();
+                sendError(ex, 504, "no solution within the deadline of " + deadline + " ms");
+                return;
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                sendError(ex, 503, "service is shutting down");
+                return;
+            } catch (ExecutionException e) {
+                sendError(ex, 500, "solve failed: " + e.getCause());
+                return;
+            }
+            if (result.solution == null) {
+                timedOut.incrementAndGet();
+                sendError(ex, 504, "no solution within the deadline of " + deadline + " ms");
+                return;
+            }
+            if (!result.solution.isFeasible(instance)) {
+                sendError(ex, 500, "solver returned an infeasible solution");
+                return;
+            }
+            completed.incrementAndGet();
+            send(ex, 200, toJson(result, instance));
+        } finally {
+            ex.close();
+        }
+    }
+
+    /**
+     * Runs GRASP on a compute thread with the part of the deadline that is left.
+     */
+    private Result solve(CVRPInstance instance, long seed, double alpha, long maxIterations, long received, long deadline) {
+        long queueMillis = elapsedMillis(received);
+        long budget = deadline - queueMillis - Math.max(MIN_MARGIN_MILLIS, deadline / 10);
+        if (budget <= 0) {
+            return new Result(null, 0, 0, queueMillis, 0);
+        }
+        long start = System.nanoTime();
+        GRASP grasp = new GRASP(alpha, null, new VND());
+        grasp.setSeed(seed);
+        grasp.setMaxIterations(maxIterations);
+        grasp.setVerbose(false);
+        CVRPSolution sol = grasp.solve(instance, budget);
+        int cost = sol == null ? 0 : sol.getTotalDistance(instance);
+        return new Result(sol, cost, grasp.getIterations(), queueMillis, elapsedMillis(start));
+    }
+
+    private void handleStatus(HttpExchange ex) throws IOException {
+        try {
+            String json = "{\"queued\":" + getQueueDepth()
+                    + ",\"queueCapacity\":" + queueCapacity
+                    + ",\"running\":" + compute.getActiveCount()
+                    + ",\"computeThreads\":" + compute.getMaximumPoolSize()
+                    + ",\"completed\":" + completed.get()
+                    + ",\"rejected\":" + rejected.get()
+                    + ",\"timedOut\":" + timedOut.get() + "}";
+            send(ex, 200, json);
+        } finally {
+            ex.close();
+        }
+    }
+
+    private static String toJson(Result result, CVRPInstance instance) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"cost\":").append(result.cost).append(",\"routes\":[");
+        List<Route> routes = result.solution.getRoutes();
+        StringBuilder depots = new StringBuilder();
+        boolean firstRoute = true;
+        for (Route r : routes) {
+            if (r.getCustomers().isEmpty()) {
+                continue;
+            }
+            if (!firstRoute) {
+                sb.append(',');
+                depots.append(',');
+            }
+            depots.append(r.getDepot());
+            firstRoute = false;
+            sb.append('[');
+            List<Integer> customers = r.getCustomers();
+            for (int i = 0; i < customers.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(customers.get(i));
+            }
+            sb.append(']');
+        }
+        sb.append(']');
+        if (!instance.isPureCVRP()) {
+            sb.append(",\"depots\":[").append(depots).append(']');
+        }
+        sb.append(",\"iterations\":").append(result.iterations)
+                .append(",\"queueMillis\":").append(result.queueMillis)
+                .append(",\"solveMillis\":").append(result.solveMillis).append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Reads the request body.
+     * @return the body, or null if it exceeds MAX_BODY_BYTES
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            if (out.size() + n > MAX_BODY_BYTES) {
+                return null;
+            }
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void sendError(HttpExchange ex, int status, String message) throws IOException {
+        send(ex, status, "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", " ") + "\"}");
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Runs the service until the JVM is stopped.
+     * Usage: SolveService [port [computeThreads [queueCapacity]]]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queue = args.length > 2 ? Integer.parseInt(args[2]) : 4 * threads;
+        SolveService service = new SolveService(port, threads, queue).start();
+        System.out.println("Solve service listening on port " + service.getPort() + " with " + threads
+                + " compute threads and a queue of " + queue);
+    }
+}
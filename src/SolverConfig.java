@@ -0,0 +1,402 @@
+package src;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Settings of a solver run, read from a properties file and/or command-line flags, so that
+ * experiments and parameter sweeps need no recompilation.
+ *
+ * Flags are written --key=value or --key value; a flag without value means true. The flag
+ * --config=file loads a properties file with the same keys first; other flags override it.
+ *
+ * Keys (default):
+ *   instances       comma-separated instance files (instances/instance1.txt)
+ *   constructor     savings, binpacking or sweep, all randomized (savings)
+ *   alpha           RCL / randomization parameter of the constructor (0.3)
+ *   operators       comma-separated VND.Operator names in order (the VND default order)
+ *   adaptive        learn the operator order online (false)
+ *   acceptance      best or first improvement within an operator (best)
+ *   sector-pruning  inter-route operators only search routes with overlapping or adjacent
+ *                   polar sectors (true)
+ *   threads         GRASP worker threads (1)
+ *   time-limit      time limit per instance in seconds (600)
+ *   max-iterations  iteration limit per instance, 0 for none (0)
+ *   seed            GRASP seed (42)
+ *   output-dir      directory of the solution files (solutions)
+ *   output-format   text or binary (text)
+ *   metrics         CSV file to which one line per solved instance is appended (none)
+ *   warm-start      start from the elite set or solution of the previous run (false)
+ *   route-cache     capacity of the RouteCache shared by all VNDs of the run, 0 for none (0)
+ *   recombination   GRASP iterations between route-pool recombinations, 0 for none (0)
+ *   route-pool      capacity of the route pool used for recombination (5000)
+ *   recombination-nodes  branch-and-bound node limit per recombined route group (20000)
+ *   lower-bound     compute a lower bound per instance and report the gap of every new best
+ *                   solution (false)
+ *   target-gap      stop an instance once the relative gap is at most this value, e.g. 0.01;
+ *                   implies lower-bound, 0 for no target (0)
+ *
+ * Instances with time windows or several depots are always constructed with InsertionHeuristic
+ * and ignore the route cache, recombination, the lower bound and the tsp operator.
+ */
+public class SolverConfig {
+    public enum Constructor { SAVINGS, BINPACKING, SWEEP }
+    public enum Acceptance { BEST, FIRST }
+
+    private static final List<String> KEYS = Arrays.asList("instances", "constructor", "alpha", "operators",
+            "adaptive", "acceptance", "sector-pruning", "threads", "time-limit", "max-iterations", "seed", "output-dir",
+            "output-format", "metrics", "warm-start", "route-cache", "recombination", "route-pool",
+            "recombination-nodes", "lower-bound", "target-gap");
+
+    private List<String> instances = List.of("instances/instance1.txt");
+    private Constructor constructor = Constructor.SAVINGS;
+    private double alpha = 0.3;
+    private List<VND.Operator> operators = VND.DEFAULT_ORDER;
+    private boolean adaptive = false;
+    private Acceptance acceptance = Acceptance.BEST;
+    private boolean sectorPruning = true;
+    private int threads = 1;
+    private long timeLimitMillis = 10 * 60 * 1000L;
+    private long maxIterations = 0;
+    private long seed = 42;
+    private String outputDir = "solutions";
+    private SolutionStreamWriter.Format outputFormat = SolutionStreamWriter.Format.TEXT;
+    private String metricsFile = null;
+    private boolean warmStart = false;
+    private int routeCacheCapacity = 0;
+    private RouteCache routeCache;
+    private long recombinationInterval = 0;
+    private int routePoolCapacity = 5000;
+    private long recombinationNodes = 20000;
+    private boolean lowerBound = false;
+    private double targetGap = 0.0;
+
+    /**
+     * Parses command-line flags, loading the --config file first if one is given.
+     * @param args command-line arguments
+     * @return the configuration
+     * @throws IOException if the config file cannot be read
+     * @throws IllegalArgumentException for unknown keys or invalid values
+     */
+    public static SolverConfig fromArgs(String[] args) throws IOException {
+        Properties flags = new Properties();
+        for (int k = 0; k < args.length; k++) {
+            String arg = args[k];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String key = arg.substring(2);
+            String value = "true";
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (k + 1 < args.length && !args[k + 1].startsWith("--")) {
+                value = args[++k];
+            }
+            flags.setProperty(key, value);
+        }
+
+        SolverConfig config = new SolverConfig();
+        String file = (String) flags.remove("config");
+        if (file != null) {
+            Properties props = new Properties();
+            try (Reader r = new FileReader(file)) {
+                props.load(r);
+            }
+            config.apply(props);
+        }
+        config.apply(flags);
+        return config;
+    }
+
+    /**
+     * Creates a configuration from properties.
+     * @param props settings, see the class comment for the keys
+     * @return the configuration
+     * @throws IllegalArgumentException for unknown keys or invalid values
+     */
+    public static SolverConfig fromProperties(Properties props) {
+        SolverConfig config = new SolverConfig();
+        config.apply(props);
+        return config;
+    }
+
+    private void apply(Properties props) {
+        for (String key : props.stringPropertyNames()) {
+            String value = props.getProperty(key).trim();
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown setting " + key + "; known settings: config, " + String.join(", ", KEYS));
+            }
+            try {
+                set(key, value);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value for " + key + ": " + value
+                        + (e.getMessage() == null ? "" : " (" + e.getMessage() + ")"), e);
+            }
+        }
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "instances":
+                instances = splitList(value);
+                break;
+            case "constructor":
+                constructor = Constructor.valueOf(value.toUpperCase());
+                break;
+            case "alpha":
+                alpha = Double.parseDouble(value);
+                break;
+            case "operators":
+                List<VND.Operator> ops = new ArrayList<>();
+                for (String op : splitList(value)) {
+                    ops.add(VND.Operator.valueOf(op.toUpperCase()));
+                }
+                operators = List.copyOf(ops);
+                break;
+            case "adaptive":
+                adaptive = Boolean.parseBoolean(value);
+                break;
+            case "acceptance":
+                acceptance = Acceptance.valueOf(value.toUpperCase());
+                break;
+            case "sector-pruning":
+                sectorPruning = Boolean.parseBoolean(value);
+                break;
+            case "threads":
+                threads = Integer.parseInt(value);
+                if (threads < 1) {
+                    throw new IllegalArgumentException("must be at least 1");
+                }
+                break;
+            case "time-limit":
+                timeLimitMillis = Math.round(Double.parseDouble(value) * 1000);
+                break;
+            case "max-iterations":
+                maxIterations = Long.parseLong(value);
+                break;
+            case "seed":
+                seed = Long.parseLong(value);
+                break;
+            case "output-dir":
+                outputDir = value;
+                break;
+            case "output-format":
+                outputFormat = SolutionStreamWriter.Format.valueOf(value.toUpperCase());
+                break;
+            case "metrics":
+                metricsFile = value.isEmpty() ? null : value;
+                break;
+            case "warm-start":
+                warmStart = Boolean.parseBoolean(value);
+                break;
+            case "recombination":
+                recombinationInterval = Long.parseLong(value);
+                if (recombinationInterval < 0) {
+                    throw new IllegalArgumentException("must not be negative");
+                }
+                break;
+            case "route-pool":
+                routePoolCapacity = Integer.parseInt(value);
+                if (routePoolCapacity < 1) {
+                    throw new IllegalArgumentException("must be at least 1");
+                }
+                break;
+            case "recombination-nodes":
+                recombinationNodes = Long.parseLong(value);
+                if (recombinationNodes < 1) {
+                    throw new IllegalArgumentException("must be at least 1");
+                }
+                break;
+            case "lower-bound":
+                lowerBound = Boolean.parseBoolean(value);
+                break;
+            case "target-gap":
+                targetGap = Double.parseDouble(value);
+                if (!(targetGap >= 0 && targetGap < 1)) {
+                    throw new IllegalArgumentException("must be in [0, 1)");
+                }
+                break;
+            case "route-cache":
+                routeCacheCapacity = Integer.parseInt(value);
+                if (routeCacheCapacity != 0 && routeCacheCapacity < 2) {
+                    throw new IllegalArgumentException("must be 0 or at least 2");
+                }
+                break;
+            default:
+                throw new IllegalStateException("Setting " + key + " is not handled");
+        }
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return List.copyOf(items);
+    }
+
+    /**
+     * Creates the local search described by this configuration.
+     * @return new VND
+     */
+    public VND createVND() {
+        VND vnd = new VND(operators, adaptive);
+        vnd.setFirstImprovement(acceptance == Acceptance.FIRST);
+        vnd.setSectorPruning(sectorPruning);
+        vnd.setRouteCache(getRouteCache());
+        return vnd;
+    }
+
+    /**
+     * Creates the GRASP described by this configuration.
+     * @return new GRASP
+     */
+    public GRASP createGRASP() {
+        RandomizedConstructor c = null;
+        if (constructor == Constructor.BINPACKING) {
+            c = new BinPackingHeuristic(alpha);
+        } else if (constructor == Constructor.SWEEP) {
+            c = new SweepHeuristic(alpha);
+        }
+        GRASP grasp = new GRASP(alpha, c, createVND());
+        grasp.setSeed(seed);
+        grasp.setThreads(threads);
+        grasp.setMaxIterations(maxIterations);
+        if (recombinationInterval > 0) {
+            grasp.setRecombination(new RoutePool(routePoolCapacity), recombinationInterval, recombinationNodes);
+        }
+        if (lowerBound || targetGap > 0) {
+            grasp.setGapReporting(true, targetGap);
+        }
+        return grasp;
+    }
+
+    /**
+     * Gets the solution file of an instance: solution_&lt;i&gt;.txt for instance&lt;i&gt;.txt,
+     * solution_&lt;name&gt;.txt otherwise (.bin in binary format).
+     * @param instancePath instance file
+     * @return solution file in the output directory
+     */
+    public String solutionPath(String instancePath) {
+        String ext = outputFormat == SolutionStreamWriter.Format.BINARY ? ".bin" : ".txt";
+        return Paths.get(outputDir, "solution_" + instanceName(instancePath) + ext).toString();
+    }
+
+    /**
+     * Gets the file holding the elite set of an instance (always in text format).
+     * @param instancePath instance file
+     * @return elite file in the output directory
+     */
+    public String elitePath(String instancePath) {
+        return Paths.get(outputDir, "elite_" + instanceName(instancePath) + ".txt").toString();
+    }
+
+    private static String instanceName(String instancePath) {
+        String name = Paths.get(instancePath).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return name.matches("instance\\d+") ? name.substring("instance".length()) : name;
+    }
+
+    public List<String> getInstances() {
+        return instances;
+    }
+
+    public Constructor getConstructor() {
+        return constructor;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public List<VND.Operator> getOperators() {
+        return operators;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public Acceptance getAcceptance() {
+        return acceptance;
+    }
+
+    public boolean isSectorPruning() {
+        return sectorPruning;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public long getMaxIterations() {
+        return maxIterations;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public SolutionStreamWriter.Format getOutputFormat() {
+        return outputFormat;
+    }
+
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public boolean isWarmStart() {
+        return warmStart;
+    }
+
+    public boolean isLowerBound() {
+        return lowerBound || targetGap > 0;
+    }
+
+    public double getTargetGap() {
+        return targetGap;
+    }
+
+    /**
+     * Gets the route cache shared by all VNDs created by this configuration.
+     * @return route cache, or null if disabled
+     */
+    public synchronized RouteCache getRouteCache() {
+        if (routeCache == null && routeCacheCapacity > 0) {
+            routeCache = new RouteCache(routeCacheCapacity);
+        }
+        return routeCache;
+    }
+
+    @Override
+    public String toString() {
+        return "constructor=" + constructor.name().toLowerCase() + " alpha=" + alpha
+                + " operators=" + operators + (adaptive ? " (adaptive)" : "")
+                + " acceptance=" + acceptance.name().toLowerCase() + (sectorPruning ? "" : " no-sector-pruning")
+                + " threads=" + threads
+                + " time-limit=" + timeLimitMillis / 1000.0 + "s max-iterations=" + maxIterations
+                + " seed=" + seed + " output=" + outputDir + " (" + outputFormat.name().toLowerCase() + ")"
+                + (warmStart ? " warm-start" : "")
+                + (routeCacheCapacity > 0 ? " route-cache=" + routeCacheCapacity : "")
+                + (recombinationInterval > 0 ? " recombination=" + recombinationInterval + " (pool " + routePoolCapacity
+                        + ", " + recombinationNodes + " nodes)" : "")
+                + (isLowerBound() ? " lower-bound" + (targetGap > 0 ? " target-gap=" + targetGap : "") : "");
+    }
+}
@@ -0,0 +1,118 @@
+package src;
+import java.util.*;
+
+/**
+ * Sweep construction heuristic (Gillett and Miller): a ray rotating around the depot collects
+ * the customers in order of their polar angle, and a vehicle is closed as soon as the next
+ * customer does not fit in it. Every vehicle's customers are then sequenced by 2-opt from
+ * their angular order.
+ *
+ * The deterministic sweep starts after the largest angular gap between two customers, so that
+ * no route spans it. The randomized sweep starts at a random customer, turns in a random
+ * direction and perturbs the angles, which lets customers near a vehicle boundary change sides.
+ * Angles are those of PolarSector, so the routes come out with narrow, disjoint sectors.
+ */
+public class SweepHeuristic implements RandomizedConstructor {
+    private static final int DEPOT = 1;
+    private final double alpha;
+
+    /**
+     * Constructor
+     * @param alpha amount of randomization in [0, 1]: angles are perturbed by up to alpha times
+     *              half the mean angular width of a vehicle
+     */
+    public SweepHeuristic(double alpha) {
+        this.alpha = alpha;
+    }
+
+    /**
+     * Constructs a CVRPSolution deterministically (no randomization).
+     * @param instance CVRP instance
+     * @return constructed CVRPSolution
+     */
+    public CVRPSolution construct(CVRPInstance instance) {
+        return build(instance, null);
+    }
+
+    /**
+     * Constructs a randomized CVRPSolution, for use as GRASP constructor.
+     * @param instance CVRP instance
+     * @param rng random source
+     * @return constructed CVRPSolution
+     */
+    @Override
+    public CVRPSolution construct(CVRPInstance instance, Random rng) {
+        return build(instance, rng);
+    }
+
+    private CVRPSolution build(CVRPInstance instance, Random rng) {
+        int n = instance.getNodes();
+        int Q = instance.getCapacity();
+        CVRPSolution sol = new CVRPSolution();
+        if (n < 2) {
+            return sol;
+        }
+
+        // customers by (possibly perturbed) polar angle around the depot
+        double noise = rng == null ? 0.0 : alpha * PolarSector.TURN / (2.0 * Math.max(1, LowerBound.computeVehicleBound(instance)));
+        Integer[] order = new Integer[n - 1];
+        double[] key = new double[n + 1];
+        for (int i = 2; i <= n; i++) {
+            order[i - 2] = i;
+            key[i] = PolarSector.angle(i, instance) + (rng == null ? 0.0 : noise * (2 * rng.nextDouble() - 1));
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(key[a], key[b]));
+
+        int start;
+        int step = 1;
+        if (rng == null) {
+            // after the largest gap, the wrap-around gap included
+            start = 0;
+            double largestGap = key[order[0]] + PolarSector.TURN - key[order[n - 2]];
+            for (int k = 1; k < n - 1; k++) {
+                double gap = key[order[k]] - key[order[k - 1]];
+                if (gap > largestGap) {
+                    largestGap = gap;
+                    start = k;
+                }
+            }
+        } else {
+            start = rng.nextInt(n - 1);
+            step = rng.nextBoolean() ? 1 : -1;
+        }
+
+        List<Integer> cluster = new ArrayList<>();
+        int load = 0;
+        for (int k = 0; k < n - 1; k++) {
+            int c = order[Math.floorMod(start + step * k, n - 1)];
+            int d = instance.getDemand(c);
+            if (load + d > Q && !cluster.isEmpty()) {
+                sol.addRoute(new Route(sequence(cluster, instance), instance));
+                cluster.clear();
+                load = 0;
+            }
+            cluster.add(c);
+            load += d;
+        }
+        if (!cluster.isEmpty()) {
+            sol.addRoute(new Route(sequence(cluster, instance), instance));
+        }
+        return sol;
+    }
+
+    /**
+     * Sequences a cluster of customers: 2-opt from the sweep order.
+     * @param cluster customers of one vehicle in sweep order
+     * @param instance CVRP instance
+     * @return visiting order
+     */
+    private List<Integer> sequence(List<Integer> cluster, CVRPInstance instance) {
+        int[] tour = RouteUtils.toTour(cluster);
+        RouteUtils.twoOpt(tour, instance);
+        List<Integer> seq = new ArrayList<>(cluster.size());
+        for (int pos = 1; pos <= cluster.size(); pos++) {
+            seq.add(tour[pos]);
+        }
+        return seq;
+    }
+}
@@ -0,0 +1,153 @@
+package src;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extended instance with multiple depots and customer time windows.
+ *
+ * Depots are ordinary nodes listed in depots, node 1 always among them; every other node is
+ * a customer. Each node
+ * has a time window [ready, due] and a service time; travel times equal distances.
+ * Routes start and end at the same depot and must return before the depot's due time.
+ * Instances without windows and with the single depot 1 are plain CVRP instances and are
+ * evaluated through the CVRP fast path (see RouteEvaluator).
+ */
+public class TWInstance extends CVRPInstance {
+    private final int[] depots;
+    private final boolean[] isDepot;
+    private final int[] ready;
+    private final int[] due;
+    private final int[] service;
+    private final boolean timeWindows;
+
+    /**
+     * Constructor
+     * @param nodes number of nodes (depots + customers)
+     * @param capacity vehicle capacity
+     * @param x x-coordinates
+     * @param y y-coordinates
+     * @param demand demand of each node
+     * @param depots depot node ids, including node 1
+     * @param ready earliest start of service per node, or null for no time windows
+     * @param due latest start of service per node, or null for no time windows
+     * @param service service time per node, or null for zero service times
+     * @throws IllegalArgumentException if a depot id is out of range or node 1 is not a depot
+     */
+    public TWInstance(int nodes, int capacity, int[] x, int[] y, int[] demand,
+                      int[] depots, int[] ready, int[] due, int[] service) {
+        super(nodes, capacity, x, y, demand);
+        this.depots = depots.clone();
+        this.isDepot = new boolean[nodes + 1];
+        for (int d : depots) {
+            if (d < 1 || d > nodes) {
+                throw new IllegalArgumentException("Depot " + d + " is not a node");
+            }
+            isDepot[d] = true;
+        }
+        if (!isDepot[1]) {
+            throw new IllegalArgumentException("Node 1 must be a depot");
+        }
+        this.timeWindows = ready != null && due != null;
+        this.ready = ready != null ? ready : new int[nodes + 1];
+        this.due = due != null ? due : filled(nodes + 1, Integer.MAX_VALUE / 4);
+        this.service = service != null ? service : new int[nodes + 1];
+    }
+
+    private static int[] filled(int size, int value) {
+        int[] a = new int[size];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    /**
+     * Gets the depot node ids.
+     * @return depots
+     */
+    @Override
+    public int[] getDepots() {
+        return depots.clone();
+    }
+
+    /**
+     * Checks if node i is a depot.
+     * @param i node index
+     * @return true if i is a depot
+     */
+    @Override
+    public boolean isDepot(int i) {
+        return isDepot[i];
+    }
+
+    /**
+     * Checks if the instance has time windows.
+     * @return true if time windows are set
+     */
+    public boolean hasTimeWindows() {
+        return timeWindows;
+    }
+
+    /**
+     * Checks if this instance is a plain CVRP instance (single depot 1, no time windows).
+     * @return true if the CVRP fast path applies
+     */
+    @Override
+    public boolean isPureCVRP() {
+        return !timeWindows && depots.length == 1 && depots[0] == 1;
+    }
+
+    /**
+     * Finds a customer that no route can serve: its demand exceeds the capacity, or no depot
+     * can serve it alone within the time windows.
+     * @return such a customer, or -1 if every customer can be served
+     */
+    @Override
+    public int findUnservableCustomer() {
+        for (int c = 2; c <= getNodes(); c++) {
+            if (isDepot[c]) {
+                continue;
+            }
+            if (getDemand(c) > getCapacity()) {
+                return c;
+            }
+            boolean servable = false;
+            for (int d : depots) {
+                if (new TimeWindowRouteEvaluator(this, List.of(c), d).isFeasible()) {
+                    servable = true;
+                    break;
+                }
+            }
+            if (!servable) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the earliest service start of node i.
+     * @param i node index
+     * @return ready time
+     */
+    public int getReady(int i) {
+        return ready[i];
+    }
+
+    /**
+     * Gets the latest service start of node i.
+     * @param i node index
+     * @return due time
+     */
+    public int getDue(int i) {
+        return due[i];
+    }
+
+    /**
+     * Gets the service time of node i.
+     * @param i node index
+     * @return service time
+     */
+    public int getService(int i) {
+        return service[i];
+    }
+}
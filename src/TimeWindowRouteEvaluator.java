@@ -0,0 +1,118 @@
+package src;
+
+import java.util.List;
+
+/**
+ * Route evaluator for routes with time windows and an arbitrary depot. Forward segments
+ * (depot + first k customers) and backward segments (customers after k + depot) are
+ * precomputed, so every single-customer change is evaluated by concatenating at most
+ * three segments in O(1).
+ */
+public final class TimeWindowRouteEvaluator implements RouteEvaluator {
+    private final TWInstance instance;
+    private final int[] customers;
+    private final TimeWindowSegment[] forward;
+    private final TimeWindowSegment[] backward;
+    private final TimeWindowSegment whole;
+
+    /**
+     * Constructor
+     * @param instance instance with time windows
+     * @param route customers of the route in visiting order
+     * @param depot depot the route starts and ends at
+     */
+    public TimeWindowRouteEvaluator(TWInstance instance, List<Integer> route, int depot) {
+        this.instance = instance;
+        int size = route.size();
+        this.customers = new int[size];
+        for (int p = 0; p < size; p++) {
+            customers[p] = route.get(p);
+        }
+
+        // forward[k] = depot, c_0 .. c_(k-1); backward[k] = c_k .. c_(size-1), depot
+        forward = new TimeWindowSegment[size + 1];
+        backward = new TimeWindowSegment[size + 1];
+        forward[0] = TimeWindowSegment.of(instance, depot);
+        for (int k = 1; k <= size; k++) {
+            forward[k] = TimeWindowSegment.concat(instance, forward[k - 1], TimeWindowSegment.of(instance, customers[k - 1]));
+        }
+        backward[size] = TimeWindowSegment.of(instance, depot);
+        for (int k = size - 1; k >= 0; k--) {
+            backward[k] = TimeWindowSegment.concat(instance, TimeWindowSegment.of(instance, customers[k]), backward[k + 1]);
+        }
+        whole = size == 0 ? null : TimeWindowSegment.concat(instance, forward[size], backward[size]);
+    }
+
+    /**
+     * Gets the time warp of the route (0 if all time windows are met).
+     * @return time warp
+     */
+    public int getTimeWarp() {
+        return whole == null ? 0 : whole.timeWarp;
+    }
+
+    @Override
+    public int size() {
+        return customers.length;
+    }
+
+    @Override
+    public int getDistance() {
+        return whole == null ? 0 : whole.distance;
+    }
+
+    @Override
+    public int getLoad() {
+        return whole == null ? 0 : whole.load;
+    }
+
+    @Override
+    public boolean isFeasible() {
+        return whole == null || feasible(whole);
+    }
+
+    @Override
+    public int removalDelta(int pos) {
+        if (customers.length == 1) {
+            return -getDistance();
+        }
+        return TimeWindowSegment.concat(instance, forward[pos], backward[pos + 1]).distance - getDistance();
+    }
+
+    @Override
+    public boolean canRemove(int pos) {
+        return customers.length == 1 || feasible(TimeWindowSegment.concat(instance, forward[pos], backward[pos + 1]));
+    }
+
+    @Override
+    public int insertionDelta(int customer, int pos) {
+        return inserted(customer, pos).distance - getDistance();
+    }
+
+    @Override
+    public boolean canInsert(int customer, int pos) {
+        return feasible(inserted(customer, pos));
+    }
+
+    @Override
+    public int replacementDelta(int pos, int customer) {
+        return replaced(pos, customer).distance - getDistance();
+    }
+
+    @Override
+    public boolean canReplace(int pos, int customer) {
+        return feasible(replaced(pos, customer));
+    }
+
+    private TimeWindowSegment inserted(int customer, int pos) {
+        return TimeWindowSegment.concat(instance, forward[pos], TimeWindowSegment.of(instance, customer), backward[pos]);
+    }
+
+    private TimeWindowSegment replaced(int pos, int customer) {
+        return TimeWindowSegment.concat(instance, forward[pos], TimeWindowSegment.of(instance, customer), backward[pos + 1]);
+    }
+
+    private boolean feasible(TimeWindowSegment s) {
+        return s.timeWarp == 0 && s.load <= instance.getCapacity();
+    }
+}
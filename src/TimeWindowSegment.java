@@ -0,0 +1,115 @@
+package src;
+
+/**
+ * Summary of a sequence of visits that allows O(1) concatenation of sequences
+ * (Vidal et al., "A hybrid genetic algorithm with adaptive diversity management", 2013).
+ *
+ * Lateness is handled as time warp: arriving after the due time is allowed but the excess is
+ * accumulated in timeWarp, so a sequence is time-feasible iff its time warp is 0.
+ */
+public final class TimeWindowSegment {
+    /** first node of the sequence */
+    final int first;
+    /** last node of the sequence */
+    final int last;
+    /** total duration: travel, service and waiting time */
+    final int duration;
+    /** accumulated time warp */
+    final int timeWarp;
+    /** earliest start time of the sequence that gives the minimum duration */
+    final int earliest;
+    /** latest start time of the sequence without extra time warp */
+    final int latest;
+    /** total travel distance */
+    final int distance;
+    /** total demand */
+    final int load;
+
+    private TimeWindowSegment(int first, int last, int duration, int timeWarp, int earliest, int latest,
+                              int distance, int load) {
+        this.first = first;
+        this.last = last;
+        this.duration = duration;
+        this.timeWarp = timeWarp;
+        this.earliest = earliest;
+        this.latest = latest;
+        this.distance = distance;
+        this.load = load;
+    }
+
+    /**
+     * Creates the segment of a single visit.
+     * @param instance instance
+     * @param node visited node
+     * @return segment
+     */
+    public static TimeWindowSegment of(TWInstance instance, int node) {
+        return new TimeWindowSegment(node, node, instance.getService(node), 0,
+                instance.getReady(node), instance.getDue(node), 0, instance.isDepot(node) ? 0 : instance.getDemand(node));
+    }
+
+    /**
+     * Concatenates two segments in O(1).
+     * @param instance instance
+     * @param a first segment
+     * @param b segment visited after a
+     * @return segment of a followed by b
+     */
+    public static TimeWindowSegment concat(TWInstance instance, TimeWindowSegment a, TimeWindowSegment b) {
+        int travel = instance.getDistance(a.last, b.first);
+        int delta = a.duration - a.timeWarp + travel;
+        int waiting = Math.max(b.earliest - delta - a.latest, 0);
+        int warp = Math.max(a.earliest + delta - b.latest, 0);
+        return new TimeWindowSegment(a.first, b.last,
+                a.duration + b.duration + travel + waiting,
+                a.timeWarp + b.timeWarp + warp,
+                Math.max(b.earliest - delta, a.earliest) - waiting,
+                Math.min(b.latest - delta, a.latest) + warp,
+                a.distance + b.distance + travel,
+                a.load + b.load);
+    }
+
+    /**
+     * Concatenates three segments in O(1).
+     * @param instance instance
+     * @param a first segment
+     * @param b second segment
+     * @param c third segment
+     * @return segment of a, b and c in that order
+     */
+    public static TimeWindowSegment concat(TWInstance instance, TimeWindowSegment a, TimeWindowSegment b, TimeWindowSegment c) {
+        return concat(instance, concat(instance, a, b), c);
+    }
+
+    /**
+     * Gets the travel distance of the sequence.
+     * @return distance
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Gets the time warp of the sequence (0 if all time windows are met).
+     * @return time warp
+     */
+    public int getTimeWarp() {
+        return timeWarp;
+    }
+
+    /**
+     * Gets the total demand of the sequence.
+     * @return load
+     */
+    public int getLoad() {
+        return load;
+    }
+
+    /**
+     * Gets the total duration of the sequence.
+     * @return duration
+     */
+    public int getDuration() {
+        return duration;
+    }
+}
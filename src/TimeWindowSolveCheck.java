@@ -0,0 +1,142 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Self-check of the solver on instances with time windows and several depots, run as a program
+ * since the project has no test framework. On random instances, InsertionHeuristic, VND with
+ * all operators (every move checked by SolutionValidator), GRASP and SolutionRepair of a
+ * scrambled solution must all give valid solutions: every customer visited once, every route
+ * from a depot, within the capacity and meeting the time windows. VND must not lengthen the
+ * constructed solution.
+ *
+ * Usage: TimeWindowSolveCheck [trials], default 100. Exits with status 1 on the first failure.
+ */
+public class TimeWindowSolveCheck {
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Random rng = new Random(1);
+        try {
+            for (int t = 0; t < trials; t++) {
+                checkInstance(randomInstance(rng, t % 3 != 1, t % 3 != 2), rng, t);
+            }
+        } catch (IllegalStateException e) {
+            System.err.println("FAILED: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("All checks passed on " + trials + " instances");
+    }
+
+    private static void checkInstance(TWInstance instance, Random rng, int trial) {
+        SolutionValidator validator = new SolutionValidator(instance);
+
+        CVRPSolution sol = new InsertionHeuristic(0).construct(instance);
+        check(validator, sol, trial, "insertion");
+        int constructed = sol.getTotalDistance(instance);
+
+        VND vnd = new VND(Arrays.asList(VND.Operator.values()));
+        vnd.setValidator(validator);
+        sol = vnd.solve(sol, instance);
+        check(validator, sol, trial, "VND");
+        if (sol.getTotalDistance(instance) > constructed) {
+            throw new IllegalStateException("trial " + trial + ": VND lengthened " + constructed
+                    + " to " + sol.getTotalDistance(instance));
+        }
+
+        GRASP grasp = new GRASP(0.3, null, vnd);
+        grasp.setVerbose(false);
+        grasp.setSeed(trial);
+        grasp.setMaxIterations(3);
+        check(validator, grasp.solve(instance, 10_000), trial, "GRASP");
+
+        check(validator, SolutionRepair.repair(scrambled(instance, rng), instance), trial, "repair");
+    }
+
+    private static void check(SolutionValidator validator, CVRPSolution sol, int trial, String step) {
+        List<String> errors = validator.validate(sol);
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("trial " + trial + ", " + step + ": " + errors);
+        }
+    }
+
+    /**
+     * Creates an instance of up to 40 customers, with up to three more depots among the nodes
+     * and/or time windows. Windows are drawn so that every customer can be served alone from
+     * node 1; instances where that fails are drawn again.
+     */
+    private static TWInstance randomInstance(Random rng, boolean depots, boolean timeWindows) {
+        while (true) {
+            int nodes = 3 + rng.nextInt(40);
+            int[] x = new int[nodes + 1];
+            int[] y = new int[nodes + 1];
+            int[] demand = new int[nodes + 1];
+            int[] ready = new int[nodes + 1];
+            int[] due = new int[nodes + 1];
+            int[] service = new int[nodes + 1];
+            int horizon = 400 + rng.nextInt(400);
+            for (int i = 1; i <= nodes; i++) {
+                x[i] = rng.nextInt(100);
+                y[i] = rng.nextInt(100);
+                if (i > 1) {
+                    demand[i] = 1 + rng.nextInt(10);
+                    ready[i] = rng.nextInt(horizon / 2);
+                    due[i] = ready[i] + 20 + rng.nextInt(150);
+                    service[i] = rng.nextInt(10);
+                }
+            }
+            due[1] = horizon;
+            int[] depotIds = {1};
+            if (depots) {
+                depotIds = new int[1 + Math.min(nodes - 2, 1 + rng.nextInt(3))];
+                depotIds[0] = 1;
+                for (int k = 1; k < depotIds.length; k++) {
+                    depotIds[k] = nodes - k + 1;
+                    demand[depotIds[k]] = 0;
+                    ready[depotIds[k]] = 0;
+                    due[depotIds[k]] = horizon;
+                    service[depotIds[k]] = 0;
+                }
+            }
+            int capacity = 15 + rng.nextInt(40);
+            TWInstance instance = timeWindows
+                    ? new TWInstance(nodes, capacity, x, y, demand, depotIds, ready, due, service)
+                    : new TWInstance(nodes, capacity, x, y, demand, depotIds, null, null, null);
+            if (instance.findUnservableCustomer() == -1) {
+                return instance;
+            }
+        }
+    }
+
+    /**
+     * Deals the customers out in random order to routes of random depots, ignoring capacity and
+     * windows, and leaves a few customers out and visits a few twice.
+     */
+    private static CVRPSolution scrambled(TWInstance instance, Random rng) {
+        List<Integer> customers = new ArrayList<>();
+        for (int c = 2; c <= instance.getNodes(); c++) {
+            if (!instance.isDepot(c)) {
+                customers.add(rng.nextInt(customers.size() + 1), c);
+            }
+        }
+        int[] depots = instance.getDepots();
+        CVRPSolution sol = new CVRPSolution();
+        int from = 0;
+        while (from < customers.size()) {
+            int to = Math.min(customers.size(), from + 1 + rng.nextInt(8));
+            List<Integer> route = new ArrayList<>(customers.subList(from, to));
+            if (rng.nextInt(4) == 0) {
+                route.remove(route.size() - 1);
+            }
+            if (rng.nextInt(4) == 0) {
+                route.add(customers.get(rng.nextInt(customers.size())));
+            }
+            sol.addRoute(new Route(route, instance, depots[rng.nextInt(depots.length)]));
+            from = to;
+        }
+        return sol;
+    }
+}
@@ -1,10 +1,244 @@
 package src;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Variable Neighborhood Descent (VND) algorithm for improving CVRP solutions.
+ *
+ * In adaptive mode the operator order is learned online: every operator call is timed in
+ * thread CPU time and the operators are tried in decreasing order of their recent
+ * improvement per CPU-nanosecond. Operators that keep failing are skipped and only probed
+ * again every few descents. Statistics persist across calls to solve, so they are learned
+ * over the iterations of a GRASP run on one instance.
  */
 public class VND {
+    /**
+     * Neighbourhood operators available to VND.
+     */
+    public enum Operator {
+        /** relocate a customer within its route */
+        RELOCATE,
+        /** swap two customers within a route */
+        INTRA_SWAP,
+        /** 2-opt within a route */
+        OPT2,
+        /** relocate a customer to another route */
+        INTER_RELOCATE,
+        /** swap two customers of different routes */
+        INTER_SWAP,
+        /** SWAP*: exchange two customers of different routes, each at its best position in the other route */
+        SWAP_STAR,
+        /** array-based route TSP optimizer (2-opt, Or-opt, 3-opt) on all routes in parallel; plain CVRP instances only */
+        TSP;
+
+        /**
+         * Applies the best move of this neighbourhood, if it improves.
+         * @param nbh neighbourhood implementation
+         * @param routes list of routes in the solution
+         * @param instance CVRP instance
+         * @return true if an improvement was made, false otherwise
+         */
+        boolean apply(NeighbourhoodReal nbh, List<Route> routes, CVRPInstance instance) {
+            switch (this) {
+                case RELOCATE:
+                    return nbh.relocate(routes, instance);
+                case INTRA_SWAP:
+                    return nbh.intraRouteSwap(routes, instance);
+                case OPT2:
+                    return nbh.opt2Swap(routes, instance);
+                case INTER_RELOCATE:
+                    return nbh.interRouteRelocate(routes, instance);
+                case INTER_SWAP:
+                    return nbh.interRouteSwap(routes, instance);
+                case SWAP_STAR:
+                    return nbh.swapStar(routes, instance);
+                case TSP:
+                    return nbh.tspOptimize(routes, instance);
+                default:
+                    throw new IllegalStateException("Unknown operator " + this);
+            }
+        }
+    }
+
+    /**
+     * Default operator order: cheap intra-route moves first, then inter-route moves. On the route
+     * pairs it searches, SWAP* includes every in-place exchange of INTER_SWAP and is cheaper to
+     * evaluate, so it replaces it. Both search the same pairs: all of them, or with sector pruning
+     * (the default) only those with overlapping or adjacent sectors, so exchanges between routes
+     * far apart around the depot are left out of the default neighbourhood.
+     */
+    public static final List<Operator> DEFAULT_ORDER = Arrays.asList(
+            Operator.RELOCATE, Operator.INTRA_SWAP, Operator.OPT2, Operator.INTER_RELOCATE, Operator.SWAP_STAR);
+
+    /**
+     * Debug mode: when the system property cvrp.validate is true, every solve is checked
+     * incrementally by a SolutionValidator.
+     */
+    private static final boolean VALIDATE = Boolean.getBoolean("cvrp.validate");
+
+    /** weight of the latest call in the moving average of an operator's yield */
+    private static final double YIELD_DECAY = 0.2;
+    /** operators whose recent success rate falls below this are skipped */
+    private static final double SKIP_RATE = 0.05;
+    /** minimum number of calls before an operator can be skipped */
+    private static final int SKIP_MIN_CALLS = 20;
+    /** skipped operators are probed again once every this many descents */
+    private static final int PROBE_INTERVAL = 10;
+
     private final NeighbourhoodReal nbh = new NeighbourhoodReal();
+    private final List<Operator> order;
+    private final boolean adaptive;
+    private final OperatorStats[] stats;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTime = threadBean.isCurrentThreadCpuTimeSupported();
+    private CVRPInstance statsInstance;
+    private int descents = 0;
+    private SolutionValidator validator;
+    private boolean firstImprovement = false;
+    private boolean sectorPruning = true;
+    private RouteCache routeCache;
+
+    public VND() {
+        this(DEFAULT_ORDER);
+    }
+
+    /**
+     * Constructor
+     * @param order operators in the order they are tried; after every improvement
+     *              the search restarts from the first one
+     */
+    public VND(List<Operator> order) {
+        this(order, false);
+    }
+
+    /**
+     * Constructor
+     * @param order initial operator order
+     * @param adaptive true to reorder and skip operators based on their observed yield
+     */
+    public VND(List<Operator> order, boolean adaptive) {
+        this.order = List.copyOf(order);
+        this.adaptive = adaptive;
+        this.stats = new OperatorStats[this.order.size()];
+        for (int k = 0; k < stats.length; k++) {
+            stats[k] = new OperatorStats(this.order.get(k));
+        }
+    }
+
+    /**
+     * Statistics of one operator in adaptive mode.
+     */
+    private static class OperatorStats {
+        final Operator op;
+        long calls = 0;
+        long successes = 0;
+        long nanos = 0;
+        long gain = 0;
+        double yield = Double.POSITIVE_INFINITY; // untried operators go first
+        double successRate = 1.0;
+
+        OperatorStats(Operator op) {
+            this.op = op;
+        }
+
+        boolean skipped() {
+            return calls >= SKIP_MIN_CALLS && successRate < SKIP_RATE;
+        }
+
+        void record(long improvement, long elapsed) {
+            calls++;
+            nanos += elapsed;
+            gain += improvement;
+            double y = (double) improvement / Math.max(elapsed, 1);
+            yield = yield == Double.POSITIVE_INFINITY ? y : YIELD_DECAY * y + (1 - YIELD_DECAY) * yield;
+            successRate = YIELD_DECAY * (improvement > 0 ? 1.0 : 0.0) + (1 - YIELD_DECAY) * successRate;
+            if (improvement > 0) {
+                successes++;
+            }
+        }
+
+        void reset() {
+            calls = 0;
+            successes = 0;
+            nanos = 0;
+            gain = 0;
+            yield = Double.POSITIVE_INFINITY;
+            successRate = 1.0;
+        }
+    }
+
+    /**
+     * Creates a VND with the same operator order and mode but its own neighbourhood state and
+     * statistics, for use on another thread. A validator is not copied; a route cache is shared.
+     * @return new VND
+     */
+    public VND copy() {
+        VND vnd = new VND(order, adaptive);
+        vnd.setFirstImprovement(firstImprovement);
+        vnd.setSectorPruning(sectorPruning);
+        vnd.setRouteCache(routeCache);
+        return vnd;
+    }
+
+    /**
+     * Sets the acceptance strategy of the neighbourhood operators.
+     * @param firstImprovement true to apply the first improving move of an operator,
+     *                         false (default) to apply its best move
+     */
+    public void setFirstImprovement(boolean firstImprovement) {
+        this.firstImprovement = firstImprovement;
+        nbh.setFirstImprovement(firstImprovement);
+    }
+
+    /**
+     * Sets whether the inter-route operators only search route pairs with overlapping or adjacent
+     * polar sectors around the depot.
+     * @param sectorPruning true (default) to prune the other pairs, false to search all pairs
+     */
+    public void setSectorPruning(boolean sectorPruning) {
+        this.sectorPruning = sectorPruning;
+        nbh.setSectorPruning(sectorPruning);
+    }
+
+    /**
+     * Sets a route cache: the routes of every local optimum are stored in it, and the intra-route
+     * operators skip routes whose customer set it already holds in a sequence at least as short.
+     * The cache may be shared by the VNDs of several threads.
+     * @param routeCache route cache, or null (default) to disable it
+     */
+    public void setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        nbh.setRouteCache(routeCache);
+    }
+
+    /**
+     * Gets the route cache.
+     * @return route cache, or null if none is set
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Sets a validator that checks the solution at the start of every solve and then
+     * checks every applied move incrementally.
+     * @param validator validator for the instance being solved, or null to disable checks
+     */
+    public void setValidator(SolutionValidator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Checks whether solutions are validated, by a set validator or by -Dcvrp.validate=true.
+     * @return true if solve checks solutions and moves
+     */
+    public boolean isValidating() {
+        return validator != null || VALIDATE;
+    }
 
     /**
      * Improves the given solution using VND.
@@ -13,42 +247,131 @@ public class VND {
      * @return improved solution
      */
     public CVRPSolution solve(CVRPSolution sol, CVRPInstance instance) {
+        return solve(sol, instance, false);
+    }
+
+    /**
+     * Improves a solution that may visit only some of the customers, e.g. a few neighbouring
+     * routes improved on their own. Validation then only requires the visited customers to stay
+     * visited exactly once.
+     * @param sol solution to improve
+     * @param instance CVRP instance
+     * @param partial true if the solution need not visit every customer
+     * @return improved solution
+     */
+    public CVRPSolution solve(CVRPSolution sol, CVRPInstance instance, boolean partial) {
+        SolutionValidator checker = validator;
+        if (checker == null && VALIDATE) {
+            checker = new SolutionValidator(instance);
+        }
+        if (checker != null) {
+            checker.reset(sol, partial);
+        }
+        nbh.setMoveListener(checker);
+        nbh.clearCacheChecks();
+
+        long descentStart = Profiler.start();
+        if (adaptive) {
+            solveAdaptive(sol, instance);
+            Profiler.record(Profiler.VND_DESCENT, descentStart);
+            cacheRoutes(sol, instance);
+            return sol;
+        }
+
         boolean improved = true;
 
         while (improved) {
             improved = false;
 
-            // Try reocation moves within the same route
-            if (nbh.relocate(sol.getRoutes(), instance)) {
-                improved = true;
-                continue;
+            // try the operators in order, restarting from the first after an improvement
+            for (Operator op : order) {
+                long callStart = Profiler.start();
+                boolean success = op.apply(nbh, sol.getRoutes(), instance);
+                Profiler.recordOperator(op, callStart);
+                if (success) {
+                    improved = true;
+                    break;
+                }
             }
+        }
 
-            // Try swap moves within the same route
-            if (nbh.intraRouteSwap(sol.getRoutes(), instance)) {
-                improved = true;
-                continue;
-            }
+        Profiler.record(Profiler.VND_DESCENT, descentStart);
+        cacheRoutes(sol, instance);
+        return sol;
+    }
 
-            // Try 2-opt moves within the same route
-            if (nbh.opt2Swap(sol.getRoutes(), instance)) {
-                improved = true;
-                continue;
+    /**
+     * Stores the routes of a local optimum in the route cache, if one is set and the routes
+     * all start at node 1 without time windows.
+     */
+    private void cacheRoutes(CVRPSolution sol, CVRPInstance instance) {
+        if (routeCache != null && instance.isPureCVRP()) {
+            for (Route r : sol.getRoutes()) {
+                routeCache.offer(r, instance);
             }
+        }
+    }
 
-            // Try relocation moves between different routes
-            if (nbh.interRouteRelocate(sol.getRoutes(), instance)) {
-                improved = true;
-                continue;
+    /**
+     * Adaptive descent: operators are tried by decreasing yield, skipped operators are left out
+     * except on probing descents, and after every improvement the search restarts from the
+     * currently best operator.
+     * @param sol solution to improve
+     * @param instance CVRP instance
+     * @return improved solution
+     */
+    private CVRPSolution solveAdaptive(CVRPSolution sol, CVRPInstance instance) {
+        if (statsInstance != instance) {
+            statsInstance = instance;
+            descents = 0;
+            for (OperatorStats st : stats) {
+                st.reset();
             }
+        }
+        boolean probe = ++descents % PROBE_INTERVAL == 0;
 
-            // Try swap moves between different routes
-            if (nbh.interRouteSwap(sol.getRoutes(), instance)) {
-                improved = true;
-                continue;
+        List<OperatorStats> ranked = new ArrayList<>(Arrays.asList(stats));
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            ranked.sort((a, b) -> Double.compare(b.yield, a.yield));
+
+            for (OperatorStats st : ranked) {
+                if (st.skipped() && !probe) {
+                    continue;
+                }
+                long before = nbh.getAppliedDelta();
+                long t0 = now();
+                long callStart = Profiler.start();
+                boolean success = st.op.apply(nbh, sol.getRoutes(), instance);
+                Profiler.recordOperator(st.op, callStart);
+                long elapsed = now() - t0;
+                st.record(before - nbh.getAppliedDelta(), elapsed);
+                if (success) {
+                    improved = true;
+                    break;
+                }
             }
         }
-
         return sol;
     }
+
+    /**
+     * Gets a summary of the adaptive operator statistics.
+     * @return one line per operator: calls, success rate, CPU time, gain and yield
+     */
+    public String getOperatorStats() {
+        StringBuilder sb = new StringBuilder();
+        for (OperatorStats st : stats) {
+            sb.append(String.format("%-15s calls %8d  success %5.1f%%  cpu %9.1f ms  gain %8d  yield %.3e%s%n",
+                    st.op, st.calls, st.calls == 0 ? 0.0 : 100.0 * st.successes / st.calls,
+                    st.nanos / 1e6, st.gain, st.yield == Double.POSITIVE_INFINITY ? 0.0 : st.yield,
+                    st.skipped() ? "  (skipped)" : ""));
+        }
+        return sb.toString();
+    }
+
+    private long now() {
+        return cpuTime ? threadBean.getCurrentThreadCpuTime() : System.nanoTime();
+    }
 }